@@ -0,0 +1,95 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses 4 MiB of log text written by the {@link StreamPublisher}, as the archiver does with a rolled file, on a
+ * single thread. The deflate level can be varied with <code>-p compressionLevel=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompressorBenchmark {
+
+    private static final int TEXT_SIZE = 4 * 1024 * 1024;
+
+    @Param({"1", "6"})
+    public int compressionLevel;
+
+    private Compressor compressor;
+
+    private byte[] text;
+
+    @Setup
+    public void setup() {
+
+        compressor = new GzipCompressor(compressionLevel);
+
+        final var byteStream = new ByteArrayOutputStream(TEXT_SIZE);
+        final var publisher = new StreamPublisher(Channels.newChannel(byteStream));
+        for (int i = 0; byteStream.size() < TEXT_SIZE; i++) {
+            final var message = "Processed request " + i + " in " + i % 97 + " ms";
+            publisher.next(
+                    message.length(),
+                    1_700_000_000_000L + i * 3L,
+                    TimeUnit.MILLISECONDS,
+                    Level.values()[i % 5],
+                    "codes.writeonce.service.RequestHandler",
+                    Map.of("requestId", Integer.toHexString(i * 31), "tenant", "tenant-" + i % 7),
+                    "worker-" + i % 8,
+                    null
+            );
+            publisher.chunk(true, CharBuffer.wrap(message));
+            publisher.endOfBatch();
+        }
+        text = byteStream.toByteArray();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long compress() throws IOException {
+
+        final var countingStream = new CountingOutputStream();
+        try (var compressedStream = compressor.compress(countingStream)) {
+            compressedStream.write(text);
+        }
+        return countingStream.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link LogQueue#publish} through {@link LoggerImpl} and {@link LocalLogger} with a {@link NullPublisher},
+ * so that only the producer side of the queue is measured.
+ * <p>
+ * Sample time mode reports the p50/p99/p99.9 latency of a single logging call.
+ * Ring sizes can be varied with <code>-p entryQueueSize=...</code> and <code>-p textQueueSize=...</code>,
+ * formatting on the consumer thread is turned on with <code>-p deferredFormatting=true</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LogQueueBenchmark {
+
+    @Param({"16", "256", "4096", "65536"})
+    public int messageSize;
+
+    @Param({"512"})
+    public int entryQueueSize;
+
+    @Param({"65536"})
+    public int textQueueSize;
+
+    @Param({"false"})
+    public boolean deferredFormatting;
+
+    private LoggerImpl logger;
+
+    private String message;
+
+    @Setup
+    public void setup() {
+        System.setProperty("codes.writeonce.slf4j.ledger.entryQueueSize", String.valueOf(entryQueueSize));
+        System.setProperty("codes.writeonce.slf4j.ledger.textQueueSize", String.valueOf(textQueueSize));
+        System.setProperty("codes.writeonce.slf4j.ledger.deferredFormatting", String.valueOf(deferredFormatting));
+        logger = new LoggerImpl(LogQueueBenchmark.class.getName(), new LogQueue(new NullPublisher(), new Config()));
+        message = "x".repeat(messageSize);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publish1() {
+        logger.info(message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publish4() {
+        logger.info(message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publishArguments4() {
+        logger.info("message {} of size {} at level {}", message, messageSize, Level.INFO);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void publish16() {
+        logger.info(message);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void publish64() {
+        logger.info(message);
+    }
+}
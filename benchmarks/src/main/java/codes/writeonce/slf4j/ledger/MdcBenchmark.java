@@ -0,0 +1,58 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the put-log-put-log pattern, where every MDC update follows a snapshot taken by the previous logging call.
+ * The MDC size can be varied with <code>-p mdcSize=...</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MdcBenchmark {
+
+    @Param({"4", "16"})
+    public int mdcSize;
+
+    private LoggerImpl logger;
+
+    private int step;
+
+    @Setup
+    public void setup() {
+        logger = new LoggerImpl(MdcBenchmark.class.getName(), new LogQueue(new NullPublisher(), new Config()));
+        for (int i = 0; i < mdcSize; i++) {
+            MDC.put("key" + i, "value" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MDC.clear();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void putAndLog() {
+        MDC.put("step", (step++ & 1) == 0 ? "even" : "odd");
+        logger.info("step");
+    }
+}
@@ -0,0 +1,34 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+final class NullPublisher implements Publisher {
+
+    @Override
+    public void next(
+            int textSize,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
+            @Nonnull Level level,
+            @Nonnull String loggerName,
+            @Nullable Map<String, String> mdc,
+            @Nullable String threadName,
+            @Nullable Throwable throwable
+    ) {
+        // empty
+    }
+
+    @Override
+    public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
+        // empty
+    }
+
+    @Override
+    public void endOfBatch() {
+        // empty
+    }
+}
@@ -0,0 +1,53 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares boxed SLF4J arguments with the primitive {@link LogBuilder} of {@link LedgerLogger}.
+ * <p>
+ * Run with <code>-prof gc</code>: the <code>gc.alloc.rate.norm</code> of {@link #primitive} is expected to be zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PrimitiveLoggingBenchmark {
+
+    private LoggerImpl logger;
+
+    private long orderId = 1_000_000;
+
+    private double price = 101.25;
+
+    @Setup
+    public void setup() {
+        logger = new LoggerImpl(PrimitiveLoggingBenchmark.class.getName(),
+                new LogQueue(new NullPublisher(), new Config()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void boxed() {
+        logger.info("order {} filled at {}", ++orderId, price);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void primitive() {
+        logger.at(Level.INFO).arg(++orderId).arg(price).log("order {} filled at {}");
+    }
+}
@@ -4,82 +4,191 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.util.Map;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the log file of an hour and hands it to the archiver when rolled.
+ * <p>
+ * With inline compression the file is written as a sequence of compressed blocks of about the given size of text,
+ * which are also the blocks of the timestamp index. A block is finished early when it has been open for the given
+ * time at the end of a batch or while the log queue is idle, and its index entry is written as soon as it is finished,
+ * so that a crash loses at most the last block and about that time of events. The archiver then only moves the file.
+ */
 public class ArchivingFilePublisher implements Publisher, AutoCloseable {
 
     @Nonnull
     private final Path logPath;
 
-    @Nonnull
-    private final Path tmpPath;
-
     @Nonnull
     private final Path archPath;
 
     @Nonnull
     private final OutputStream logStream;
 
+    @Nullable
+    private final BlockCompressingOutputStream blockStream;
+
     @Nonnull
-    private final OutputStream tmpStream;
+    private final StreamPublisher streamPublisher;
+
+    @Nonnull
+    private final TimestampIndexWriter timestampIndex;
+
+    @Nonnull
+    private final LogArchiver archiver;
+
+    private final int compressionBlockSize;
+
+    private final long compressionBlockMillis;
 
-    public ArchivingFilePublisher(
+    /**
+     * Text position of the first byte of the current compressed block.
+     */
+    private long blockTextStart;
+
+    private long blockStartMillis;
+
+    /**
+     * @param position               size of the log file the stream appends to
+     * @param inlineCompression      whether to write the file as compressed blocks
+     * @param compressionBlockSize   number of text bytes a compressed block is finished after
+     * @param compressionBlockMillis time a compressed block is finished after
+     */
+    ArchivingFilePublisher(
             @Nonnull Path logPath,
-            @Nonnull Path tmpPath,
             @Nonnull Path archPath,
             @Nonnull OutputStream logStream,
-            @Nonnull OutputStream tmpStream
+            long position,
+            int indexBlockSize,
+            @Nonnull LogArchiver archiver,
+            boolean inlineCompression,
+            int compressionBlockSize,
+            long compressionBlockMillis
     ) {
         this.logPath = logPath;
-        this.tmpPath = tmpPath;
         this.archPath = archPath;
         this.logStream = logStream;
-        this.tmpStream = tmpStream;
+        this.archiver = archiver;
+        this.compressionBlockSize = compressionBlockSize;
+        this.compressionBlockMillis = compressionBlockMillis;
+
+        if (inlineCompression) {
+            blockStream = new BlockCompressingOutputStream(logStream, archiver.compressor(), position);
+            streamPublisher = new StreamPublisher(Channels.newChannel(blockStream));
+            // every event is given the position of its compressed block, which makes a block of the index
+            timestampIndex = new TimestampIndexWriter(logPath, 1, position);
+        } else {
+            blockStream = null;
+            streamPublisher = new StreamPublisher(Channels.newChannel(logStream), position);
+            timestampIndex = new TimestampIndexWriter(logPath, indexBlockSize, position);
+        }
     }
 
     @Override
     public void next(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     ) {
-        try {
-            if (isRollNeded(timestampMillis)) {
-
-                if (!INITIALIZED) {
-                    initialize();
-                }
-
-                lastMillis = timestampMillis;
-                outputStream = open(year, month, day, hour);
-                streamPublisher = new StreamPublisher(new PrintStream(outputStream, true, UTF_8));
+        final var timestampMillis = timestampPrecision.toMillis(timestamp);
+
+        if (blockStream == null) {
+            timestampIndex.next(streamPublisher.position(), timestampMillis);
+        } else {
+            final var blockTextSize = streamPublisher.position() - blockTextStart;
+            if (blockTextSize >= compressionBlockSize) {
+                endBlock();
+                blockStartMillis = System.currentTimeMillis();
+            } else if (blockTextSize == 0) {
+                blockStartMillis = System.currentTimeMillis();
             }
-            // TODO:
+            timestampIndex.next(blockStream.blockPosition(), timestampMillis);
+        }
 
-        } catch (IOException e) {
+        streamPublisher.next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
+    }
 
+    @Override
+    public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
+        streamPublisher.chunk(last, charBuffer);
+    }
+
+    @Override
+    public void endOfBatch() {
+
+        if (blockStream != null
+            && streamPublisher.position() != blockTextStart
+            && System.currentTimeMillis() - blockStartMillis >= compressionBlockMillis) {
+            endBlock();
+        } else {
+            streamPublisher.endOfBatch();
         }
     }
 
+    /**
+     * Keeps the consumer thread around until the open compressed block is due to be finished.
+     */
     @Override
-    public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
-        // TODO:
+    public boolean idle() {
+
+        if (blockStream == null || streamPublisher.position() == blockTextStart) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - blockStartMillis >= compressionBlockMillis) {
+            endBlock();
+            return false;
+        }
+
+        return true;
     }
 
     @Override
     public void close() {
-        // TODO:
+
+        try (logStream) {
+            streamPublisher.endOfBatch();
+            if (blockStream == null) {
+                timestampIndex.close(streamPublisher.position());
+            } else {
+                blockStream.endBlock();
+                timestampIndex.close(blockStream.blockPosition());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public void closeAndRoll() {
-        // TODO:
+
+        close();
+        if (blockStream == null) {
+            archiver.archive(logPath, archPath);
+        } else {
+            archiver.move(logPath, archPath);
+        }
+    }
+
+    private void endBlock() {
+
+        streamPublisher.endOfBatch();
+        try {
+            blockStream.endBlock();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // the index entry goes out along with the block, so that a reopen does not take the block for a crashed one
+        timestampIndex.endBlock(blockStream.blockPosition());
+        blockTextStart = streamPublisher.position();
     }
 }
@@ -1,36 +1,24 @@
 package codes.writeonce.slf4j.ledger;
 
-import org.slf4j.helpers.Util;
-
 import javax.annotation.Nonnull;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
-import static java.lang.ProcessBuilder.Redirect.DISCARD;
-import static java.lang.ProcessBuilder.Redirect.PIPE;
-import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.nio.file.StandardOpenOption.READ;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 public class ArchivingFilePublisherFactory {
 
-    private static final PrefixThreadFactory ARCHIVER_THREAD_FACTORY = new PrefixThreadFactory("log-archiver-", false);
-
-    private static final PrefixThreadFactory ARCHIVE_WRITER_THREAD_FACTORY =
-            new PrefixThreadFactory("log-archive-writer-", false);
-
     @Nonnull
     private final String prefix;
 
@@ -40,27 +28,52 @@ public class ArchivingFilePublisherFactory {
     @Nonnull
     private final Path currentDir;
 
-    private final int compressionLevel;
+    @Nonnull
+    private final LogArchiver archiver;
+
+    private final int indexBlockSize;
+
+    private final boolean inlineCompression;
 
-    private final int compressionThreads;
+    private final int compressionBlockSize;
 
+    private final long compressionBlockMillis;
+
+    /**
+     * Matches the names of the log files, with the suffix of the compressor in group 5 for the files compressed as
+     * they were written.
+     */
     private final Pattern pattern;
 
     private boolean initialized;
 
+    /**
+     * @param compressionThreads     number of log files compressed at a time
+     * @param inlineCompression      whether to compress the log files in blocks as they are written
+     * @param compressionBlockSize   number of text bytes a compressed block is finished after
+     * @param compressionBlockMillis time a compressed block is finished after
+     */
     public ArchivingFilePublisherFactory(
             @Nonnull String prefix,
             @Nonnull Path archiveDir,
             @Nonnull Path currentDir,
-            int compressionLevel,
-            int compressionThreads
+            @Nonnull Compressor compressor,
+            int compressionThreads,
+            int indexBlockSize,
+            boolean inlineCompression,
+            int compressionBlockSize,
+            long compressionBlockMillis
     ) {
         this.prefix = prefix;
         this.archiveDir = archiveDir;
         this.currentDir = currentDir;
-        this.compressionLevel = compressionLevel;
-        this.compressionThreads = compressionThreads;
-        pattern = Pattern.compile("^" + Pattern.quote(prefix) + "\\.(\\d{4})-(\\d{2})-(\\d{2})-(\\d{2})\\.log$");
+        this.archiver = new LogArchiver(compressor, compressionThreads);
+        this.indexBlockSize = indexBlockSize;
+        this.inlineCompression = inlineCompression;
+        this.compressionBlockSize = compressionBlockSize;
+        this.compressionBlockMillis = compressionBlockMillis;
+        pattern = Pattern.compile("^" + Pattern.quote(prefix) + "\\.(\\d{4})-(\\d{2})-(\\d{2})-(\\d{2})\\.log("
+                                  + Pattern.quote(compressor.suffix()) + ")?$");
     }
 
     @Nonnull
@@ -71,7 +84,6 @@ public class ArchivingFilePublisherFactory {
             int hour
     ) {
         final var logPath = getLogPath(year, month, day, hour);
-        final var tmpPath = getTmpPath(year, month, day, hour);
         final var archPath = getArchPath(year, month, day, hour);
 
         if (!initialized) {
@@ -79,96 +91,49 @@ public class ArchivingFilePublisherFactory {
             initialized = true;
         }
 
-        return open(logPath, tmpPath, archPath);
+        return open(logPath, archPath);
     }
 
+    /**
+     * Archives the log files left in the current directory by the previous runs.
+     */
     private void initialize(@Nonnull Path logPath) {
 
-        try {
+        final Path[] paths;
+        try (var list = Files.list(currentDir)) {
             final var logName = logPath.getFileName().toString();
             final var matcher = pattern.matcher("");
 
-            final var paths = Files.list(currentDir).filter(path -> {
+            paths = list.filter(path -> {
                 final var name = path.getFileName().toString();
                 return !name.equals(logName) && matcher.reset(name).matches() && Files.isRegularFile(path);
             }).sorted().toArray(Path[]::new);
-
-            if (paths.length != 0) {
-                ARCHIVER_THREAD_FACTORY.newThread(() -> archiveOld(paths)).start();
-            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-    }
-
-    private void archiveOld(@Nonnull Path[] paths) {
-
-        try {
-            final var matcher = pattern.matcher("");
-            for (final var path : paths) {
-                try {
-                    final var name = path.getFileName().toString();
-                    if (!matcher.reset(name).find()) {
-                        throw new IllegalStateException();
-                    }
-
-                    final var year = Integer.parseInt(matcher.group(1));
-                    final var month = Integer.parseInt(matcher.group(2));
-                    final var day = Integer.parseInt(matcher.group(3));
-                    final var hour = Integer.parseInt(matcher.group(4));
-
-                    final var tmpPath = getTmpPath(year, month, day, hour);
-                    final var archPath = getArchPath(year, month, day, hour);
-
-                    try (var logStream = Files.newInputStream(path, READ);
-                         var tmpStream = Files.newOutputStream(tmpPath, CREATE, TRUNCATE_EXISTING, WRITE)) {
-
-                        final var process = spawnArchiver();
-
-                        try (var stdoutStream = process.getInputStream()) {
-
-                            final var future = new CompletableFuture<Void>();
-
-                            ARCHIVE_WRITER_THREAD_FACTORY.newThread(() -> writeArchive(stdoutStream, tmpStream, future))
-                                    .start();
 
-                            try (var stdinStream = process.getOutputStream()) {
-                                logStream.transferTo(stdinStream);
-                            }
-
-                            future.get();
+        final var matcher = pattern.matcher("");
+        for (final var path : paths) {
+            if (!matcher.reset(path.getFileName().toString()).find()) {
+                throw new IllegalStateException();
+            }
 
-                            final var exitValue = process.waitFor();
-                            if (exitValue != 0) {
-                                Util.report("Compressor process exited with code: " + exitValue);
-                                Util.report("Failed to compress log file: " + path);
-                                Util.report("Failed to compress logs");
-                                break;
-                            }
-                        } catch (Throwable e) {
-                            final var exitValue = process.waitFor();
-                            if (exitValue != 0) {
-                                Util.report("Compressor process exited with code: " + exitValue);
-                            }
-                            throw e;
-                        }
-                    }
+            final var year = Integer.parseInt(matcher.group(1));
+            final var month = Integer.parseInt(matcher.group(2));
+            final var day = Integer.parseInt(matcher.group(3));
+            final var hour = Integer.parseInt(matcher.group(4));
 
-                    Files.move(tmpPath, archPath, ATOMIC_MOVE);
-                    Files.delete(path);
-                } catch (Throwable e) {
-                    Util.report("Failed to compress log file: " + path, e);
-                    Util.report("Failed to compress logs");
-                    break;
-                }
+            final var compressedSuffix = matcher.group(5);
+            if (compressedSuffix == null || compressedSuffix.isEmpty()) {
+                archiver.archive(path, getArchPath(year, month, day, hour));
+            } else {
+                archiver.move(path, getArchPath(year, month, day, hour));
             }
-        } catch (Throwable e) {
-            Util.report("Failed to compress logs", e);
         }
     }
 
     @Nonnull
-    private ArchivingFilePublisher open(@Nonnull Path logPath, @Nonnull Path tmpPath, @Nonnull Path archPath) {
+    private ArchivingFilePublisher open(@Nonnull Path logPath, @Nonnull Path archPath) {
 
         try {
 
@@ -194,44 +159,47 @@ public class ArchivingFilePublisherFactory {
                 }
             }
 
-            final var tmpStream = Files.newOutputStream(tmpPath, CREATE, TRUNCATE_EXISTING, WRITE);
-            final var process = spawnArchiver();
-
+            final long position;
             if (inputStream == null) {
-
+                position = 0;
             } else {
-
+                inputStream.close();
+                position = inlineCompression ? truncateToIndexed(logPath) : Files.size(logPath);
             }
 
-            return new ArchivingFilePublisher(logPath, tmpPath, archPath, logStream, tmpStream);
+            return new ArchivingFilePublisher(
+                    logPath,
+                    archPath,
+                    logStream,
+                    position,
+                    indexBlockSize,
+                    archiver,
+                    inlineCompression,
+                    compressionBlockSize,
+                    compressionBlockMillis
+            );
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    private void writeArchive(
-            @Nonnull InputStream inputStream,
-            @Nonnull OutputStream outputStream,
-            @Nonnull CompletableFuture<Void> future
-    ) {
-        try {
-            inputStream.transferTo(outputStream);
-            future.complete(null);
-        } catch (Throwable e) {
-            future.completeExceptionally(e);
+    /**
+     * Drops the compressed blocks a crash may have left unfinished after the indexed ones, so that the blocks appended
+     * next can be decoded.
+     *
+     * @return size of the log file
+     */
+    private static long truncateToIndexed(@Nonnull Path logPath) throws IOException {
+
+        final var indexedSize = TimestampIndexWriter.indexedSize(logPath);
+        try (var channel = FileChannel.open(logPath, WRITE)) {
+            if (indexedSize != -1 && indexedSize < channel.size()) {
+                channel.truncate(indexedSize);
+            }
+            return channel.size();
         }
     }
 
-    @Nonnull
-    private Process spawnArchiver() throws IOException {
-
-        return new ProcessBuilder("xz", "-" + compressionLevel, "-T", String.valueOf(compressionThreads))
-                .redirectInput(PIPE)
-                .redirectError(DISCARD)
-                .redirectOutput(PIPE)
-                .start();
-    }
-
     @Nonnull
     private Path getArchPath(int year, int month, int day, int hour) {
 
@@ -239,22 +207,14 @@ public class ArchivingFilePublisherFactory {
                 .resolve(String.format("%04d", year))
                 .resolve(String.format("%02d", month))
                 .resolve(String.format("%02d", day))
-                .resolve(String.format("%s.%04d-%02d-%02d-%02d.log.xz", prefix, year, month, day, hour));
-    }
-
-    @Nonnull
-    private Path getTmpPath(int year, int month, int day, int hour) {
-
-        return archiveDir
-                .resolve(String.format("%04d", year))
-                .resolve(String.format("%02d", month))
-                .resolve(String.format("%02d", day))
-                .resolve(String.format("%s.%04d-%02d-%02d-%02d.log.xz.tmp", prefix, year, month, day, hour));
+                .resolve(String.format("%s.%04d-%02d-%02d-%02d.log%s", prefix, year, month, day, hour,
+                        archiver.suffix()));
     }
 
     @Nonnull
     private Path getLogPath(int year, int month, int day, int hour) {
 
-        return currentDir.resolve(String.format("%s.%04d-%02d-%02d-%02d.log", prefix, year, month, day, hour));
+        return currentDir.resolve(String.format("%s.%04d-%02d-%02d-%02d.log%s", prefix, year, month, day, hour,
+                inlineCompression ? archiver.suffix() : ""));
     }
 }
@@ -0,0 +1,66 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+final class BackoffWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+
+    private final int yieldTries;
+
+    private final long parkNanos;
+
+    private final int mask;
+
+    @Nonnull
+    private final AtomicReferenceArray<Thread> waiters;
+
+    BackoffWaitStrategy(int size, int spinTries, int yieldTries, long parkNanos) {
+
+        if (spinTries < 0 || yieldTries < 0 || parkNanos <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.spinTries = spinTries;
+        this.yieldTries = spinTries + yieldTries;
+        this.parkNanos = parkNanos;
+        this.mask = size - 1;
+        this.waiters = new AtomicReferenceArray<>(size);
+    }
+
+    @Override
+    public void await(@Nonnull Sequence sequence, long value) {
+
+        var counter = 0;
+
+        while (sequence.get() < value) {
+            if (counter < spinTries) {
+                counter++;
+            } else if (counter < yieldTries) {
+                counter++;
+                Thread.onSpinWait();
+            } else {
+                final var thread = Thread.currentThread();
+                final var index = (int) value & mask;
+                waiters.set(index, thread);
+                // re-check after publishing the waiter, the signalling side does the same in the opposite order
+                if (sequence.get() < value) {
+                    // the timeout only guards against a waiter slot being overwritten, normally we get unparked
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                waiters.compareAndSet(index, thread, null);
+            }
+        }
+    }
+
+    @Override
+    public void signal(long value) {
+
+        final var thread = waiters.get((int) value & mask);
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
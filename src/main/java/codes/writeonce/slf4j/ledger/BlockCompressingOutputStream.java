@@ -0,0 +1,111 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses the bytes written to it into a sequence of blocks, each a complete compressed stream of its own, so
+ * that every block can be decoded without those before it. Decoders of concatenated streams, such as the gzip ones,
+ * read the whole sequence as one stream.
+ */
+final class BlockCompressingOutputStream extends OutputStream {
+
+    @Nonnull
+    private final OutputStream outputStream;
+
+    @Nonnull
+    private final Compressor compressor;
+
+    /**
+     * Passes the compressed bytes of a block to the output stream, which stays open when the block is closed.
+     */
+    @Nonnull
+    private final OutputStream blockOutputStream = new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            position += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() {
+            // the output stream is closed separately
+        }
+    };
+
+    private OutputStream block;
+
+    private long position;
+
+    private long blockStart;
+
+    /**
+     * @param position size of the file the output stream appends to
+     */
+    BlockCompressingOutputStream(@Nonnull OutputStream outputStream, @Nonnull Compressor compressor, long position) {
+        this.outputStream = outputStream;
+        this.compressor = compressor;
+        this.position = position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        openBlock().write(b);
+    }
+
+    @Override
+    public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+        openBlock().write(b, off, len);
+    }
+
+    /**
+     * @return position in the output stream of the block the next byte goes to, which is the end of the finished
+     * blocks
+     */
+    long blockPosition() {
+        return block == null ? position : blockStart;
+    }
+
+    /**
+     * Finishes the block, if any, and writes it out.
+     */
+    void endBlock() throws IOException {
+
+        if (block != null) {
+            final var finishedBlock = block;
+            block = null;
+            finishedBlock.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try (outputStream) {
+            endBlock();
+        }
+    }
+
+    @Nonnull
+    private OutputStream openBlock() throws IOException {
+
+        if (block == null) {
+            blockStart = position;
+            block = compressor.compress(blockOutputStream);
+        }
+        return block;
+    }
+}
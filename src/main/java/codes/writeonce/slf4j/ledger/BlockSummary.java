@@ -0,0 +1,118 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static codes.writeonce.slf4j.ledger.JournalFormat.BLOOM_FILTER_HASHES;
+import static codes.writeonce.slf4j.ledger.JournalFormat.BLOOM_FILTER_SIZE;
+
+/**
+ * Collects the summary of the events of a journal block: the least and the greatest timestamp, the number of events,
+ * a bit per level and a bloom filter of the <code>key=value</code> pairs of the MDCs.
+ */
+final class BlockSummary {
+
+    private static final int BLOOM_FILTER_MASK = BLOOM_FILTER_SIZE * 8 - 1;
+
+    private final byte[] bloomFilter = new byte[BLOOM_FILTER_SIZE];
+
+    private final BiConsumer<String, String> mdcEntryCollector = this::addMdcEntry;
+
+    private long minTimestampMillis;
+
+    private long maxTimestampMillis;
+
+    private int eventCount;
+
+    private int levels;
+
+    /**
+     * MDC of the previous event, whose entries are in the filter already.
+     */
+    @Nullable
+    private Map<String, String> lastMdc;
+
+    boolean isEmpty() {
+        return eventCount == 0;
+    }
+
+    void add(long timestampMillis, @Nonnull Level level, @Nullable Map<String, String> mdc) {
+
+        if (eventCount == 0) {
+            minTimestampMillis = timestampMillis;
+            maxTimestampMillis = timestampMillis;
+        } else if (timestampMillis < minTimestampMillis) {
+            minTimestampMillis = timestampMillis;
+        } else if (timestampMillis > maxTimestampMillis) {
+            maxTimestampMillis = timestampMillis;
+        }
+
+        eventCount++;
+        levels |= 1 << level.ordinal();
+
+        // MDC snapshots are immutable and shared by the events logged between the changes
+        if (mdc != null && mdc != lastMdc) {
+            mdc.forEach(mdcEntryCollector);
+            lastMdc = mdc;
+        }
+    }
+
+    /**
+     * Puts the summary as laid out in {@link JournalFormat} and starts over.
+     */
+    void write(@Nonnull ByteBuffer byteBuffer) {
+
+        byteBuffer.putLong(minTimestampMillis);
+        byteBuffer.putLong(maxTimestampMillis);
+        byteBuffer.putInt(eventCount);
+        byteBuffer.putInt(levels);
+        byteBuffer.put(bloomFilter);
+
+        Arrays.fill(bloomFilter, (byte) 0);
+        eventCount = 0;
+        levels = 0;
+        lastMdc = null;
+    }
+
+    /**
+     * @return the bits of the bloom filter set for the MDC entry
+     */
+    @Nonnull
+    static int[] bloomFilterBits(@Nonnull String key, @Nullable String value) {
+
+        final var hash = hash(key, value);
+        final var bits = new int[BLOOM_FILTER_HASHES];
+        for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+            bits[i] = bloomFilterBit(hash, i);
+        }
+        return bits;
+    }
+
+    private void addMdcEntry(@Nonnull String key, @Nullable String value) {
+
+        final var hash = hash(key, value);
+        for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+            final var bit = bloomFilterBit(hash, i);
+            bloomFilter[bit >>> 3] |= 1 << (bit & 7);
+        }
+    }
+
+    private static int bloomFilterBit(long hash, int i) {
+        return ((int) hash + i * ((int) (hash >>> 32) | 1)) & BLOOM_FILTER_MASK;
+    }
+
+    private static long hash(@Nonnull String key, @Nullable String value) {
+
+        var h = key.hashCode() * 0x9E3779B97F4A7C15L + (value == null ? 0 : value.hashCode());
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,11 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+final class BlockingOverflowPolicy implements OverflowPolicy {
+
+    @Override
+    public long claim(@Nonnull Sequencer sequencer, @Nonnull Level level) {
+        return sequencer.next();
+    }
+}
@@ -0,0 +1,55 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Millisecond clock read from a field that a daemon ticker thread refreshes every <code>tickMillis</code>, so that
+ * logging threads never call into the system clock. Timestamps lag behind by up to a tick. The ticker stops once the
+ * clock is closed.
+ */
+final class CachedClockSource implements ClockSource {
+
+    private volatile long timestampMillis = System.currentTimeMillis();
+
+    @Nonnull
+    private final Thread ticker;
+
+    CachedClockSource(long tickMillis) {
+
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Property clockTickMillis must be positive: " + tickMillis);
+        }
+
+        ticker = new PrefixThreadFactory("log-clock-", true).newThread(() -> tick(tickMillis));
+        ticker.start();
+    }
+
+    private void tick(long tickMillis) {
+
+        try {
+            while (true) {
+                timestampMillis = System.currentTimeMillis();
+                Thread.sleep(tickMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public long timestamp() {
+        return timestampMillis;
+    }
+
+    @Nonnull
+    @Override
+    public TimeUnit precision() {
+        return TimeUnit.MILLISECONDS;
+    }
+
+    @Override
+    public void close() {
+        ticker.interrupt();
+    }
+}
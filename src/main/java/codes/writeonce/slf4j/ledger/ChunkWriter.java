@@ -1,13 +1,23 @@
 package codes.writeonce.slf4j.ledger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.util.Map;
 
 public interface ChunkWriter {
 
     void chunk(boolean last, boolean endOfBatch, int start, int end, @Nonnull byte[] bytes) throws InterruptedException;
 
-    void sequence(long sequence);
+    /**
+     * Starts the next event.
+     *
+     * @param timestampMillis timestamp of the event in milliseconds
+     * @param mdc             MDC of the event, not modified once passed in
+     * @return <code>true</code> if the event is an index point, which must be written without any state carried over
+     * from the previous events
+     */
+    boolean sequence(long sequence, long timestampMillis, @Nonnull Level level, @Nullable Map<String, String> mdc);
 
     void last() throws InterruptedException;
 
@@ -15,4 +25,17 @@ public interface ChunkWriter {
 
     @Nonnull
     ByteBuffer chunk() throws InterruptedException;
+
+    /**
+     * Drops the frames of the event that has failed partway and makes the next event an index point, since the
+     * serializer starts it afresh.
+     */
+    void abort();
+
+    /**
+     * Finishes the last event and block, nothing is written afterwards.
+     */
+    default void close() {
+        // empty
+    }
 }
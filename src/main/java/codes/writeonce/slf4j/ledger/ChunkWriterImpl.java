@@ -1,34 +1,521 @@
 package codes.writeonce.slf4j.ledger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
-public class ChunkWriterImpl implements ChunkWriter {
+import static codes.writeonce.slf4j.ledger.JournalFormat.FIRST_SEQUENCE_OFFSET;
+import static codes.writeonce.slf4j.ledger.JournalFormat.FRAME_HEADER_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.INDEX_ENTRY_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.INDEX_POINT;
+import static codes.writeonce.slf4j.ledger.JournalFormat.LAST_FRAME;
+import static codes.writeonce.slf4j.ledger.JournalFormat.MAGIC;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SEGMENT_HEADER_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SEGMENT_NUMBER_OFFSET;
+import static codes.writeonce.slf4j.ledger.JournalFormat.STREAM_ID_OFFSET;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SUMMARY_ENTRY_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.VERSION;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes frames into memory-mapped journal segments laid out as described in {@link JournalFormat}.
+ * <p>
+ * The buffers returned by {@link #chunk()} are slices of the mapped segment, so the serializer writes straight into
+ * the file. Every segment is filled with zeros and mapped at its full size up front, so that running out of disk
+ * space fails the roll rather than a write into the mapping. The next segment is filled by a helper thread while the
+ * current one is being written, so that the roll only has to map it. The written part is forced to disk at the end of
+ * every batch. Index points are appended to the index file of the stream as they are written, and the summary of the
+ * block of events before an index point to the summary file. The frames of an aborted event are cleared, and the
+ * next event is written over them as an index point.
+ */
+public class ChunkWriterImpl implements ChunkWriter, AutoCloseable {
+
+    /**
+     * The smallest payload a frame is opened for, a segment with less room left is rolled.
+     */
+    private static final int MIN_FRAME_CAPACITY = 64;
+
+    private static final int ZEROS_SIZE = 64 * 1024;
+
+    private static final byte[] ZEROS = new byte[ZEROS_SIZE];
+
+    private static final PrefixThreadFactory RESERVE_THREAD_FACTORY = new PrefixThreadFactory("log-journal-", true);
+
+    @Nonnull
+    private final Path directory;
+
+    @Nonnull
+    private final String prefix;
+
+    private final int segmentSize;
+
+    private final int indexInterval;
+
+    private final long streamId;
+
+    @Nonnull
+    private final FileChannel index;
+
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+    @Nonnull
+    private final FileChannel summaries;
+
+    private final ByteBuffer summaryEntry = ByteBuffer.allocate(SUMMARY_ENTRY_SIZE);
+
+    private final BlockSummary blockSummary = new BlockSummary();
+
+    /**
+     * Segments the frames of the current event are in, from {@link #eventStart} in the first one on.
+     */
+    private final ArrayList<MappedByteBuffer> eventSegments = new ArrayList<>();
+
+    private boolean indexDirty;
+
+    private int segmentNumber;
+
+    private MappedByteBuffer segment;
+
+    /**
+     * File of the segment after the current one, or of the first segment, being filled with zeros in the background.
+     */
+    @Nullable
+    private Future<Path> reservedSegment;
+
+    /**
+     * Where the next frame starts in the current segment.
+     */
+    private int position;
+
+    private int forcedPosition;
+
+    private int frameStart;
+
+    private int eventStart;
+
+    private ByteBuffer frame;
+
+    private long sequence;
+
+    private boolean segmentIndexed;
+
+    private int eventsSinceIndexPoint;
+
+    private boolean indexPoint;
+
+    private boolean indexPointFrame;
+
+    private boolean aborted;
+
+    private long maxTimestampMillis = Long.MIN_VALUE;
+
+    public ChunkWriterImpl(@Nonnull Config config) {
+        this(
+                Paths.get(config.getProperty("journalDir", "journal")),
+                config.getProperty("prefix", "main"),
+                Integer.parseInt(config.getProperty("segmentSize", String.valueOf(64 * 1024 * 1024))),
+                Integer.parseInt(config.getProperty("indexInterval", "1024"))
+        );
+    }
+
+    /**
+     * The stream id is the current time in milliseconds, or the first id after it that no other stream in the
+     * directory has.
+     *
+     * @param indexInterval number of events between index points within a segment
+     */
+    public ChunkWriterImpl(@Nonnull Path directory, @Nonnull String prefix, int segmentSize, int indexInterval) {
+
+        if (segmentSize < SEGMENT_HEADER_SIZE + FRAME_HEADER_SIZE + MIN_FRAME_CAPACITY) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+
+        if (indexInterval < 1) {
+            throw new IllegalArgumentException("Invalid index interval: " + indexInterval);
+        }
+
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+
+        try {
+            this.directory = Files.createDirectories(directory);
+            var streamId = System.currentTimeMillis();
+            FileChannel indexChannel = null;
+            while (indexChannel == null) {
+                final var indexPath = directory.resolve(JournalFormat.indexFileName(prefix, streamId));
+                try {
+                    indexChannel = FileChannel.open(indexPath, CREATE_NEW, WRITE);
+                } catch (FileAlreadyExistsException e) {
+                    // another writer has started a stream within the same millisecond
+                    streamId++;
+                }
+            }
+            this.streamId = streamId;
+            index = indexChannel;
+            final var summaryPath = directory.resolve(JournalFormat.summaryFileName(prefix, streamId));
+            try {
+                summaries = FileChannel.open(summaryPath, CREATE_NEW, WRITE);
+            } catch (Throwable e) {
+                index.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        reserveInBackground(0);
+    }
 
     @Override
-    public void chunk(boolean last, boolean endOfBatch, int start, int end, @Nonnull byte[] bytes)
-            throws InterruptedException {
-        // TODO:
+    public void chunk(boolean last, boolean endOfBatch, int start, int end, @Nonnull byte[] bytes) {
+
+        while (start < end) {
+            final var byteBuffer = frame == null || !frame.hasRemaining() ? chunk() : frame;
+            final var length = Math.min(byteBuffer.remaining(), end - start);
+            byteBuffer.put(bytes, start, length);
+            start += length;
+        }
+
+        if (last) {
+            last();
+        }
+
+        if (endOfBatch) {
+            endOfBatch();
+        }
     }
 
     @Override
-    public void sequence(long sequence) {
-        // TODO:
+    public boolean sequence(
+            long sequence,
+            long timestampMillis,
+            @Nonnull Level level,
+            @Nullable Map<String, String> mdc
+    ) {
+
+        last();
+        this.sequence = sequence;
+        eventSegments.clear();
+
+        if (segment == null || segmentSize - position < FRAME_HEADER_SIZE + MIN_FRAME_CAPACITY) {
+            roll();
+        }
+
+        eventSegments.add(segment);
+        eventStart = position;
+        indexPoint = aborted || !segmentIndexed || eventsSinceIndexPoint == indexInterval;
+        aborted = false;
+        if (indexPoint) {
+            if (!blockSummary.isEmpty()) {
+                writeSummaryEntry();
+            }
+            writeIndexEntry();
+            segmentIndexed = true;
+            eventsSinceIndexPoint = 0;
+        }
+        eventsSinceIndexPoint++;
+        maxTimestampMillis = Math.max(maxTimestampMillis, timestampMillis);
+        blockSummary.add(timestampMillis, level, mdc);
+        return indexPoint;
     }
 
     @Override
-    public void last() throws InterruptedException {
-        // TODO:
+    public void last() {
+
+        if (frame != null) {
+            closeFrame(true);
+        }
     }
 
     @Override
-    public void endOfBatch() throws InterruptedException {
-        // TODO:
+    public void endOfBatch() {
+
+        last();
+        force();
     }
 
     @Nonnull
     @Override
-    public ByteBuffer chunk() throws InterruptedException {
-        return null; // TODO:
+    public ByteBuffer chunk() {
+
+        if (frame != null) {
+            if (frame.position() == 0) {
+                return frame;
+            }
+            closeFrame(false);
+        }
+
+        if (segment == null || segmentSize - position < FRAME_HEADER_SIZE + MIN_FRAME_CAPACITY) {
+            roll();
+        }
+
+        frameStart = position;
+        indexPointFrame = indexPoint;
+        indexPoint = false;
+        segment.putLong(frameStart + 4, sequence);
+        final var payloadStart = frameStart + FRAME_HEADER_SIZE;
+        frame = segment.slice(payloadStart, segmentSize - payloadStart);
+        return frame;
+    }
+
+    @Override
+    public void abort() {
+
+        if (!eventSegments.isEmpty()) {
+            // the frames are cleared and the next event is written over them
+            final var last = eventSegments.size() - 1;
+            final var end = frame == null ? position : frameStart + FRAME_HEADER_SIZE + frame.position();
+            for (int i = 0; i <= last; i++) {
+                clear(eventSegments.get(i), i == 0 ? eventStart : SEGMENT_HEADER_SIZE, i == last ? end : segmentSize);
+            }
+            position = last == 0 ? eventStart : SEGMENT_HEADER_SIZE;
+            forcedPosition = Math.min(forcedPosition, position);
+            eventSegments.clear();
+        }
+
+        frame = null;
+        aborted = true;
+    }
+
+    @Override
+    public void close() {
+
+        last();
+        if (!blockSummary.isEmpty()) {
+            writeSummaryEntry();
+        }
+
+        try (index; summaries) {
+            force();
+            deleteReservedSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segment = null;
+    }
+
+    private void closeFrame(boolean last) {
+
+        final var length = frame.position();
+        var lengthAndFlags = length;
+        if (last) {
+            lengthAndFlags |= LAST_FRAME;
+        }
+        if (indexPointFrame) {
+            lengthAndFlags |= INDEX_POINT;
+        }
+        segment.putInt(frameStart, lengthAndFlags);
+        position = frameStart + FRAME_HEADER_SIZE + length;
+        frame = null;
+    }
+
+    private void force() {
+
+        if (segment != null && position > forcedPosition) {
+            segment.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+
+        if (indexDirty) {
+            try {
+                index.force(false);
+                summaries.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indexDirty = false;
+        }
+    }
+
+    private void writeIndexEntry() {
+
+        indexEntry.clear();
+        indexEntry.putLong(sequence);
+        indexEntry.putLong(maxTimestampMillis);
+        indexEntry.putInt(segmentNumber);
+        indexEntry.putInt(position);
+        indexEntry.flip();
+
+        try {
+            while (indexEntry.hasRemaining()) {
+                index.write(indexEntry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexDirty = true;
+    }
+
+    private void writeSummaryEntry() {
+
+        summaryEntry.clear();
+        blockSummary.write(summaryEntry);
+        summaryEntry.flip();
+
+        try {
+            while (summaryEntry.hasRemaining()) {
+                summaries.write(summaryEntry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexDirty = true;
+    }
+
+    private void roll() {
+
+        force();
+
+        // nothing changes until the new segment is ready, so that a failed roll is tried again with the same number
+        final var newSegmentNumber = segment == null ? segmentNumber : segmentNumber + 1;
+        final var path = directory.resolve(JournalFormat.segmentFileName(prefix, streamId, newSegmentNumber));
+        final MappedByteBuffer newSegment;
+        try {
+            final var reservedPath = takeReservedSegment(newSegmentNumber);
+            try {
+                try (var channel = FileChannel.open(reservedPath, READ, WRITE)) {
+                    newSegment = channel.map(READ_WRITE, 0, segmentSize);
+                }
+                newSegment.putInt(0, MAGIC);
+                newSegment.putInt(4, VERSION);
+                newSegment.putLong(STREAM_ID_OFFSET, streamId);
+                newSegment.putLong(FIRST_SEQUENCE_OFFSET, sequence);
+                newSegment.putInt(SEGMENT_NUMBER_OFFSET, newSegmentNumber);
+                // a segment without a header would stop the readers of the stream
+                Files.move(reservedPath, path);
+            } catch (Throwable e) {
+                Files.deleteIfExists(reservedPath);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        segmentNumber = newSegmentNumber;
+        segment = newSegment;
+        position = SEGMENT_HEADER_SIZE;
+        forcedPosition = 0;
+        segmentIndexed = false;
+        if (!eventSegments.isEmpty()) {
+            eventSegments.add(newSegment);
+        }
+        reserveInBackground(newSegmentNumber + 1);
+    }
+
+    /**
+     * Writes zeros over a part of a segment and forces it to disk, so that the frames once there are not read even
+     * after a crash.
+     */
+    private static void clear(@Nonnull MappedByteBuffer segment, int start, int end) {
+
+        for (int i = start; i < end; i += ZEROS_SIZE) {
+            segment.put(i, ZEROS, 0, Math.min(ZEROS_SIZE, end - i));
+        }
+        if (end > start) {
+            segment.force(start, end - start);
+        }
+    }
+
+    private void reserveInBackground(int segmentNumber) {
+
+        final var task = new FutureTask<>(() -> reserve(segmentNumber));
+        RESERVE_THREAD_FACTORY.newThread(task).start();
+        reservedSegment = task;
+    }
+
+    /**
+     * @return file of the segment reserved in the background, or reserved right away if that has failed
+     */
+    @Nonnull
+    private Path takeReservedSegment(int segmentNumber) throws IOException {
+
+        final var reserved = reservedSegment;
+        reservedSegment = null;
+        if (reserved != null) {
+            try {
+                return await(reserved);
+            } catch (ExecutionException e) {
+                // tried once more, such as after some disk space has been freed
+            }
+        }
+        return reserve(segmentNumber);
+    }
+
+    private void deleteReservedSegment() throws IOException {
+
+        final var reserved = reservedSegment;
+        reservedSegment = null;
+        if (reserved != null) {
+            try {
+                Files.delete(await(reserved));
+            } catch (ExecutionException e) {
+                // the file has been deleted by reserve()
+            }
+        }
+    }
+
+    /**
+     * Creates the file of a segment under its reserved name and writes zeros over its whole size, since mapping a file
+     * beyond its end only makes it sparse.
+     */
+    @Nonnull
+    private Path reserve(int segmentNumber) throws IOException {
+
+        final var path = directory.resolve(JournalFormat.reservedSegmentFileName(prefix, streamId, segmentNumber));
+        try (var channel = FileChannel.open(path, CREATE_NEW, WRITE)) {
+            try {
+                final var zeros = ByteBuffer.wrap(ZEROS);
+                var position = 0L;
+                while (position < segmentSize) {
+                    zeros.clear().limit((int) Math.min(ZEROS_SIZE, segmentSize - position));
+                    while (zeros.hasRemaining()) {
+                        position += channel.write(zeros, position);
+                    }
+                }
+            } catch (Throwable e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Waits for the file even if interrupted, so that it is neither missing for the roll nor left behind on close.
+     */
+    @Nonnull
+    private static Path await(@Nonnull Future<Path> reserved) throws ExecutionException {
+
+        var interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return reserved.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
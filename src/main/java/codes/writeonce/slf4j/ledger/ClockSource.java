@@ -0,0 +1,22 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of event timestamps, counted in units of the {@link #precision()} since the epoch.
+ */
+interface ClockSource {
+
+    long timestamp();
+
+    @Nonnull
+    TimeUnit precision();
+
+    /**
+     * Called once when the log queue is shut down, the timestamps taken afterwards are of the events that are dropped.
+     */
+    default void close() {
+        // empty
+    }
+}
@@ -0,0 +1,27 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses the log files moved to the archive by the {@link RollingFilePublisher}. Implementations are picked with
+ * the <code>compressor</code> setting, or can be passed to the publisher directly.
+ * <p>
+ * Compression runs on the archiver threads, never on the thread writing the logs.
+ */
+public interface Compressor {
+
+    /**
+     * @return suffix appended to the name of the archived log file, such as <code>.gz</code>
+     */
+    @Nonnull
+    String suffix();
+
+    /**
+     * @return stream that writes the compressed form of the bytes written to it into the output stream, and closes
+     * the output stream when closed
+     */
+    @Nonnull
+    OutputStream compress(@Nonnull OutputStream outputStream) throws IOException;
+}
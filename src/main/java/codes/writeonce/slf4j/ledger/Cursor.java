@@ -1,6 +0,0 @@
-package codes.writeonce.slf4j.ledger;
-
-interface Cursor {
-
-    void publish(int index);
-}
@@ -0,0 +1,45 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip files with the JDK {@link java.util.zip.Deflater}.
+ */
+final class GzipCompressor implements Compressor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int level;
+
+    /**
+     * @param level deflate level from <code>0</code>, stored, to <code>9</code>, the smallest
+     */
+    GzipCompressor(int level) {
+
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+
+        this.level = level;
+    }
+
+    @Nonnull
+    @Override
+    public String suffix() {
+        return ".gz";
+    }
+
+    @Nonnull
+    @Override
+    public OutputStream compress(@Nonnull OutputStream outputStream) throws IOException {
+
+        return new GZIPOutputStream(outputStream, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+}
@@ -1,33 +1,85 @@
 package codes.writeonce.slf4j.ledger;
 
+import codes.writeonce.slf4j.ledger.transport.LogEventPublisher;
+import codes.writeonce.slf4j.ledger.transport.LogEventSerializer;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
+import org.slf4j.helpers.Util;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public final class ILoggerFactoryImpl implements ILoggerFactory {
 
-    private static final LogQueue LOG_QUEUE = new LogQueue(createPublisher());
+    private static final Config CONFIG = new Config();
 
-    private final Logger root = new LoggerImpl(null, LOG_QUEUE);
+    private static final LogQueue LOG_QUEUE = new LogQueue(createPublisher(CONFIG), CONFIG);
+
+    private static final LevelTree LEVEL_TREE = new LevelTree(CONFIG);
+
+    static {
+        final var shutdownTimeoutMillis = Long.parseLong(CONFIG.getProperty("shutdownTimeoutMillis", "10000"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(shutdownTimeoutMillis), "log-shutdown"));
+    }
+
+    private final Logger root = createLogger(null);
 
     private final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<>();
 
     @Nonnull
-    private static Publisher createPublisher() {
+    private static Publisher createPublisher(@Nonnull Config config) {
 
-        final var config = new Config();
         final var mode = config.getProperty("mode", "stderr");
 
         return switch (mode) {
-            case "stdout" -> new StreamPublisher(System.out);
-            case "stderr" -> new StreamPublisher(System.err);
+            case "stdout" -> new StreamPublisher(new FileOutputStream(FileDescriptor.out).getChannel());
+            case "stderr" -> new StreamPublisher(new FileOutputStream(FileDescriptor.err).getChannel());
             case "rolling" -> new RollingFilePublisher(config);
+            case "ledger" -> new LogEventPublisher(
+                    new ChunkWriterImpl(config),
+                    Boolean.parseBoolean(config.getProperty("mdcDelta", "false")),
+                    Integer.parseInt(config.getProperty("dictionaryLimit",
+                            String.valueOf(LogEventSerializer.DEFAULT_DICTIONARY_LIMIT)))
+            );
             default -> throw new IllegalArgumentException("Invalid mode selected: " + mode);
         };
     }
 
+    /**
+     * Publishes the events logged before the JVM exit and closes the publisher, so that the files are finished.
+     */
+    private static void shutdown(long timeoutMillis) {
+
+        try {
+            if (!LOG_QUEUE.close(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                Util.report("Log publisher not closed within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of log events dropped so far because the log queue was full
+     */
+    public static long getDroppedCount() {
+        return LOG_QUEUE.getDroppedCount();
+    }
+
+    /**
+     * Changes the level of a logger and of its descendants that have no level of their own.
+     *
+     * @param name  logger name, or <code>ROOT</code>
+     * @param level level name, <code>OFF</code>, or <code>null</code> to fall back to the configured level
+     */
+    public static void setLevel(@Nonnull String name, @Nullable String level) {
+        LEVEL_TREE.setLevel(name, level);
+    }
+
     public ILoggerFactoryImpl() {
         // empty
     }
@@ -43,6 +95,14 @@ public final class ILoggerFactoryImpl implements ILoggerFactory {
             return root;
         }
 
-        return loggers.computeIfAbsent(name, n -> new LoggerImpl(n, LOG_QUEUE));
+        return loggers.computeIfAbsent(name, ILoggerFactoryImpl::createLogger);
+    }
+
+    @Nonnull
+    private static LoggerImpl createLogger(@Nullable String name) {
+
+        final var logger = new LoggerImpl(name, LOG_QUEUE);
+        LEVEL_TREE.register(logger);
+        return logger;
     }
 }
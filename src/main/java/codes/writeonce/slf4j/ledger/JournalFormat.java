@@ -0,0 +1,90 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Layout of the journal segment files written by {@link ChunkWriterImpl}.
+ * <p>
+ * A segment starts with a header of {@link #SEGMENT_HEADER_SIZE} bytes: magic, version, stream id, sequence of the
+ * first frame and number of the segment within the stream. Frames follow, each made of an int with the payload length
+ * and the {@link #LAST_FRAME} and {@link #INDEX_POINT} flags, the long sequence of the event and the payload. An event
+ * is split into several frames when it does not fit into the rest of a segment. The unused tail of a segment is zero,
+ * and a zero length marks the end of the written frames, since no frame is ever empty. A segment is filled with zeros
+ * under its name with {@link #RESERVED_SUFFIX} appended, and gets its name only once its header is written.
+ * <p>
+ * The stream id tells apart the runs of the writer. The transport state, such as the string dictionaries, is started
+ * afresh at index points: the first event that starts in a segment and then every so many events. The first frame of
+ * such an event has the {@link #INDEX_POINT} flag, and the stream can be read starting from any of them.
+ * <p>
+ * Every index point has an entry of {@link #INDEX_ENTRY_SIZE} bytes in the index file of the stream: the sequence of
+ * the event, the greatest timestamp in milliseconds among the events before it, the segment number and the position
+ * of the frame in the segment. Both the sequences and the timestamps of the entries are non-decreasing.
+ * <p>
+ * The events from an index point up to the next one make a block. Every finished block has an entry of
+ * {@link #SUMMARY_ENTRY_SIZE} bytes in the summary file of the stream, in the order of the index entries: the least
+ * and the greatest timestamp in milliseconds, the number of events, a bit per level ordinal and a bloom filter of
+ * {@link #BLOOM_FILTER_SIZE} bytes with {@link #BLOOM_FILTER_HASHES} bits set for every <code>key=value</code> pair
+ * of the MDCs. The last block of a stream gets its entry when the writer is closed.
+ */
+final class JournalFormat {
+
+    static final int MAGIC = 0x4C4A524E;
+
+    static final int VERSION = 2;
+
+    static final int SEGMENT_HEADER_SIZE = 32;
+
+    static final int STREAM_ID_OFFSET = 8;
+
+    static final int FIRST_SEQUENCE_OFFSET = 16;
+
+    static final int SEGMENT_NUMBER_OFFSET = 24;
+
+    static final int FRAME_HEADER_SIZE = 12;
+
+    static final int LAST_FRAME = 0x80000000;
+
+    static final int INDEX_POINT = 0x40000000;
+
+    static final int FRAME_LENGTH_MASK = ~(LAST_FRAME | INDEX_POINT);
+
+    static final int INDEX_ENTRY_SIZE = 24;
+
+    static final int BLOOM_FILTER_SIZE = 512;
+
+    static final int BLOOM_FILTER_HASHES = 4;
+
+    static final int SUMMARY_ENTRY_SIZE = 24 + BLOOM_FILTER_SIZE;
+
+    static final String SUFFIX = ".journal";
+
+    static final String RESERVED_SUFFIX = ".reserved";
+
+    static final String INDEX_SUFFIX = ".index";
+
+    static final String SUMMARY_SUFFIX = ".summary";
+
+    @Nonnull
+    static String segmentFileName(@Nonnull String prefix, long streamId, int segmentNumber) {
+        return String.format("%s-%019d-%010d%s", prefix, streamId, segmentNumber, SUFFIX);
+    }
+
+    @Nonnull
+    static String reservedSegmentFileName(@Nonnull String prefix, long streamId, int segmentNumber) {
+        return segmentFileName(prefix, streamId, segmentNumber) + RESERVED_SUFFIX;
+    }
+
+    @Nonnull
+    static String indexFileName(@Nonnull String prefix, long streamId) {
+        return String.format("%s-%019d%s", prefix, streamId, INDEX_SUFFIX);
+    }
+
+    @Nonnull
+    static String summaryFileName(@Nonnull String prefix, long streamId) {
+        return String.format("%s-%019d%s", prefix, streamId, SUMMARY_SUFFIX);
+    }
+
+    private JournalFormat() {
+        // empty
+    }
+}
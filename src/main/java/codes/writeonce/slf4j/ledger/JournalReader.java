@@ -0,0 +1,314 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static codes.writeonce.slf4j.ledger.JournalFormat.FRAME_HEADER_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.FRAME_LENGTH_MASK;
+import static codes.writeonce.slf4j.ledger.JournalFormat.INDEX_ENTRY_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.INDEX_POINT;
+import static codes.writeonce.slf4j.ledger.JournalFormat.LAST_FRAME;
+import static codes.writeonce.slf4j.ledger.JournalFormat.MAGIC;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SEGMENT_HEADER_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SEGMENT_NUMBER_OFFSET;
+import static codes.writeonce.slf4j.ledger.JournalFormat.STREAM_ID_OFFSET;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SUMMARY_ENTRY_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SUFFIX;
+import static codes.writeonce.slf4j.ledger.JournalFormat.VERSION;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the journal segments written by {@link ChunkWriterImpl} and passes their frames to a {@link Receiver},
+ * such as the <code>LogEventReceiver</code>, as slices of the mapped files.
+ * <p>
+ * Replay can start from a sequence or a timestamp: the index of the stream is searched for the last index point that
+ * is not past it, and the segments are read from there on. Up to an index interval of earlier events is passed too,
+ * which the receiver is left to skip.
+ * <p>
+ * A filtered replay reads only the blocks between index points whose summaries tell that they may hold matching
+ * events. All the events of such a block are passed, and the receiver is left to pick the matching ones.
+ */
+public final class JournalReader {
+
+    @Nonnull
+    private final Path directory;
+
+    @Nonnull
+    private final String prefix;
+
+    public JournalReader(@Nonnull Path directory, @Nonnull String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return ids of the streams found in the directory in the order they were written
+     */
+    @Nonnull
+    public long[] streams() throws IOException {
+
+        final var streamIds = new TreeSet<Long>();
+        try (var paths = Files.newDirectoryStream(directory, prefix + "-*" + SUFFIX)) {
+            for (final var path : paths) {
+                final var name = path.getFileName().toString();
+                final var start = prefix.length() + 1;
+                final var end = name.indexOf('-', start);
+                if (end != -1) {
+                    try {
+                        streamIds.add(Long.parseLong(name.substring(start, end)));
+                    } catch (NumberFormatException e) {
+                        // not a segment of ours
+                    }
+                }
+            }
+        }
+
+        return streamIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Passes all frames of the stream to the receiver, segment by segment.
+     */
+    public void replay(long streamId, @Nonnull Receiver receiver) throws IOException {
+        replay(streamId, 0, SEGMENT_HEADER_SIZE, Long.MAX_VALUE, receiver);
+    }
+
+    /**
+     * Passes the frames of the stream to the receiver starting from the last index point at or before the sequence.
+     */
+    public void replayFromSequence(long streamId, long sequence, @Nonnull Receiver receiver) throws IOException {
+
+        final var index = mapIndex(streamId);
+        final var entry = findLast(index, 0, sequence);
+        if (entry == -1) {
+            replay(streamId, receiver);
+        } else {
+            replayFromEntry(index, entry, streamId, receiver);
+        }
+    }
+
+    /**
+     * Passes the frames of the stream to the receiver starting from the last index point with no earlier events
+     * at or after the timestamp, so that all the events at or after it are passed. The events before the timestamp
+     * that follow the index point are passed too, a <code>LogEventReceiver</code> given the same timestamp as its
+     * lower bound leaves them out.
+     */
+    public void replayFromTimestamp(long streamId, long timestampMillis, @Nonnull Receiver receiver)
+            throws IOException {
+
+        final var index = mapIndex(streamId);
+        final var entry = findLast(index, 8, timestampMillis - 1);
+        if (entry == -1) {
+            replay(streamId, receiver);
+        } else {
+            replayFromEntry(index, entry, streamId, receiver);
+        }
+    }
+
+    /**
+     * Passes the frames of the blocks of the stream that may hold events with one of the levels, with all the MDC
+     * entries, and with a timestamp in <code>[fromMillis, toMillis)</code>. The block still being written when the
+     * stream was read, or left without a summary by a crash, is always passed.
+     */
+    public void replayMatching(
+            long streamId,
+            @Nonnull Set<Level> levels,
+            @Nonnull Map<String, String> mdc,
+            long fromMillis,
+            long toMillis,
+            @Nonnull Receiver receiver
+    ) throws IOException {
+
+        var levelBits = 0;
+        for (final var level : levels) {
+            levelBits |= 1 << level.ordinal();
+        }
+
+        final var mdcBits = new int[mdc.size()][];
+        var i = 0;
+        for (final var entry : mdc.entrySet()) {
+            mdcBits[i++] = BlockSummary.bloomFilterBits(entry.getKey(), entry.getValue());
+        }
+
+        final var index = mapIndex(streamId);
+        final var summaries = mapSummaries(streamId);
+        final var blockCount = index.capacity() / INDEX_ENTRY_SIZE;
+        final var summaryCount = Math.min(summaries.capacity() / SUMMARY_ENTRY_SIZE, blockCount);
+
+        var block = 0;
+        while (block < blockCount) {
+            if (block < summaryCount && !mayMatch(summaries, block, levelBits, mdcBits, fromMillis, toMillis)) {
+                block++;
+                continue;
+            }
+
+            // adjacent blocks are read in one go
+            var end = block + 1;
+            while (end < blockCount
+                   && (end >= summaryCount || mayMatch(summaries, end, levelBits, mdcBits, fromMillis, toMillis))) {
+                end++;
+            }
+
+            final var entryStart = block * INDEX_ENTRY_SIZE;
+            final var endSequence = end == blockCount ? Long.MAX_VALUE : index.getLong(end * INDEX_ENTRY_SIZE);
+            replay(streamId, index.getInt(entryStart + 16), index.getInt(entryStart + 20), endSequence, receiver);
+            block = end;
+        }
+    }
+
+    private static boolean mayMatch(
+            @Nonnull MappedByteBuffer summaries,
+            int block,
+            int levelBits,
+            @Nonnull int[][] mdcBits,
+            long fromMillis,
+            long toMillis
+    ) {
+        final var entryStart = block * SUMMARY_ENTRY_SIZE;
+        if (summaries.getLong(entryStart) >= toMillis
+            || summaries.getLong(entryStart + 8) < fromMillis
+            || (summaries.getInt(entryStart + 20) & levelBits) == 0) {
+            return false;
+        }
+
+        final var bloomFilterStart = entryStart + 24;
+        for (final var bits : mdcBits) {
+            for (final var bit : bits) {
+                if ((summaries.get(bloomFilterStart + (bit >>> 3)) & 1 << (bit & 7)) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void replayFromEntry(@Nonnull MappedByteBuffer index, int entry, long streamId, @Nonnull Receiver receiver)
+            throws IOException {
+
+        final var entryStart = entry * INDEX_ENTRY_SIZE;
+        replay(streamId, index.getInt(entryStart + 16), index.getInt(entryStart + 20), Long.MAX_VALUE, receiver);
+    }
+
+    /**
+     * @param endSequence sequence of the first event not to pass
+     */
+    private void replay(
+            long streamId,
+            int firstSegmentNumber,
+            int firstPosition,
+            long endSequence,
+            @Nonnull Receiver receiver
+    ) throws IOException {
+
+        var offset = 0L;
+        var position = firstPosition;
+        for (int segmentNumber = firstSegmentNumber; offset != -1; segmentNumber++) {
+            final var path = directory.resolve(JournalFormat.segmentFileName(prefix, streamId, segmentNumber));
+            if (!Files.exists(path)) {
+                return;
+            }
+            offset = replaySegment(map(path, streamId, segmentNumber), position, offset, endSequence, receiver);
+            position = SEGMENT_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * @return offset within its event of the frame that follows, or <code>-1</code> if the end sequence is reached
+     */
+    private static long replaySegment(
+            @Nonnull MappedByteBuffer segment,
+            int position,
+            long offset,
+            long endSequence,
+            @Nonnull Receiver receiver
+    ) {
+        final var size = segment.capacity();
+        while (position <= size - FRAME_HEADER_SIZE) {
+            final var lengthAndFlags = segment.getInt(position);
+            if (lengthAndFlags == 0) {
+                break;
+            }
+            final var length = lengthAndFlags & FRAME_LENGTH_MASK;
+            final var payloadStart = position + FRAME_HEADER_SIZE;
+            if (length > size - payloadStart) {
+                throw new IllegalArgumentException("Invalid journal frame length: " + length);
+            }
+            final var sequence = segment.getLong(position + 4);
+            if (sequence >= endSequence) {
+                return -1;
+            }
+            if ((lengthAndFlags & INDEX_POINT) != 0) {
+                receiver.reset();
+            }
+            final var last = (lengthAndFlags & LAST_FRAME) != 0;
+            receiver.next(sequence, offset, last, segment.slice(payloadStart, length));
+            offset = last ? 0 : offset + length;
+            position = payloadStart + length;
+        }
+        return offset;
+    }
+
+    /**
+     * @return the last index entry with the long at the offset within the entry not greater than the value,
+     * or <code>-1</code> if there is none
+     */
+    private static int findLast(@Nonnull MappedByteBuffer index, int fieldOffset, long value) {
+
+        var low = 0;
+        var high = index.capacity() / INDEX_ENTRY_SIZE - 1;
+        while (low <= high) {
+            final var middle = (low + high) >>> 1;
+            if (index.getLong(middle * INDEX_ENTRY_SIZE + fieldOffset) <= value) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    @Nonnull
+    private MappedByteBuffer mapIndex(long streamId) throws IOException {
+
+        try (var channel = FileChannel.open(directory.resolve(JournalFormat.indexFileName(prefix, streamId)), READ)) {
+            // an entry being appended is left out
+            return channel.map(READ_ONLY, 0, channel.size() / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE);
+        }
+    }
+
+    @Nonnull
+    private MappedByteBuffer mapSummaries(long streamId) throws IOException {
+
+        final var path = directory.resolve(JournalFormat.summaryFileName(prefix, streamId));
+        try (var channel = FileChannel.open(path, READ)) {
+            return channel.map(READ_ONLY, 0, channel.size() / SUMMARY_ENTRY_SIZE * SUMMARY_ENTRY_SIZE);
+        }
+    }
+
+    @Nonnull
+    private static MappedByteBuffer map(@Nonnull Path path, long streamId, int segmentNumber) throws IOException {
+
+        final MappedByteBuffer segment;
+        try (var channel = FileChannel.open(path, READ)) {
+            segment = channel.map(READ_ONLY, 0, channel.size());
+        }
+
+        if (segment.capacity() < SEGMENT_HEADER_SIZE
+            || segment.getInt(0) != MAGIC
+            || segment.getInt(4) != VERSION
+            || segment.getLong(STREAM_ID_OFFSET) != streamId
+            || segment.getInt(SEGMENT_NUMBER_OFFSET) != segmentNumber) {
+            throw new IllegalArgumentException("Invalid journal segment: " + path);
+        }
+
+        return segment;
+    }
+}
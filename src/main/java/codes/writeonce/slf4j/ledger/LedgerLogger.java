@@ -0,0 +1,20 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.slf4j.Logger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Extension of the SLF4J logger that formats primitive arguments without allocating:
+ * <pre>
+ * ((LedgerLogger) logger).at(Level.INFO).arg(orderId).arg(price).log("order {} filled at {}");
+ * </pre>
+ */
+public interface LedgerLogger extends Logger {
+
+    /**
+     * @return a builder of a message at <code>level</code>, or one that discards it if the level is disabled
+     */
+    @Nonnull
+    LogBuilder at(@Nonnull Level level);
+}
@@ -0,0 +1,26 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Blocks for events at or above the configured level and drops the rest.
+ */
+final class LevelOverflowPolicy implements OverflowPolicy {
+
+    @Nonnull
+    private final Level level;
+
+    LevelOverflowPolicy(@Nonnull Level level) {
+        this.level = level;
+    }
+
+    @Override
+    public long claim(@Nonnull Sequencer sequencer, @Nonnull Level level) {
+
+        if (level.compareTo(this.level) >= 0) {
+            return sequencer.next();
+        }
+
+        return sequencer.tryNext();
+    }
+}
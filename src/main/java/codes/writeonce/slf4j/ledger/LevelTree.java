@@ -0,0 +1,112 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.slf4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Resolves logger levels along the dot-separated name hierarchy.
+ * <p>
+ * A logger takes the level of its closest ancestor (or itself) that has one, looking first at the levels set at
+ * runtime and then at the <code>level.&lt;name&gt;</code> properties. The root level is the <code>level</code>
+ * property, INFO by default. Resolved levels are pushed into the loggers, so a level check stays a field read.
+ */
+final class LevelTree {
+
+    private static final String OFF = "OFF";
+
+    @Nonnull
+    private final Config config;
+
+    /**
+     * Runtime levels by logger name, root under the empty name. Guarded by <code>this</code>.
+     */
+    private final HashMap<String, Integer> thresholds = new HashMap<>();
+
+    /**
+     * Guarded by <code>this</code>.
+     */
+    private final ArrayList<LoggerImpl> loggers = new ArrayList<>();
+
+    LevelTree(@Nonnull Config config) {
+        this.config = config;
+    }
+
+    synchronized void register(@Nonnull LoggerImpl logger) {
+
+        logger.setThreshold(resolve(path(logger.getName())));
+        loggers.add(logger);
+    }
+
+    /**
+     * @param level level name, <code>OFF</code>, or <code>null</code> to fall back to the configured one
+     */
+    synchronized void setLevel(@Nonnull String name, @Nullable String level) {
+
+        final var path = path(name);
+        if (level == null) {
+            thresholds.remove(path);
+        } else {
+            thresholds.put(path, parse(level));
+        }
+
+        for (final var logger : loggers) {
+            final var loggerPath = path(logger.getName());
+            if (isDescendant(loggerPath, path)) {
+                logger.setThreshold(resolve(loggerPath));
+            }
+        }
+    }
+
+    private int resolve(@Nonnull String path) {
+
+        var current = path;
+        while (true) {
+            final var threshold = thresholds.get(current);
+            if (threshold != null) {
+                return threshold;
+            }
+
+            final var level = config.getProperty(current.isEmpty() ? "level" : "level." + current);
+            if (level != null) {
+                return parse(level);
+            }
+
+            if (current.isEmpty()) {
+                return Level.INFO.ordinal();
+            }
+
+            final var index = current.lastIndexOf('.');
+            current = index == -1 ? "" : current.substring(0, index);
+        }
+    }
+
+    private static boolean isDescendant(@Nonnull String path, @Nonnull String ancestor) {
+        return ancestor.isEmpty() || path.equals(ancestor)
+               || path.startsWith(ancestor) && path.charAt(ancestor.length()) == '.';
+    }
+
+    @Nonnull
+    private static String path(@Nonnull String name) {
+        return Logger.ROOT_LOGGER_NAME.equalsIgnoreCase(name) ? "" : name;
+    }
+
+    private static int parse(@Nonnull String level) {
+
+        final var value = level.trim();
+        if (OFF.equalsIgnoreCase(value)) {
+            return Level.values().length;
+        }
+
+        for (final var candidate : Level.values()) {
+            if (candidate.name().equalsIgnoreCase(value)) {
+                return candidate.ordinal();
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid level selected: " + level);
+    }
+}
@@ -4,43 +4,369 @@ import org.slf4j.MDC;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
 import java.util.Map;
 
-final class LocalLogger implements AutoCloseable {
+/**
+ * Formatting context shared by all loggers used on a thread. Doubles as the {@link LogBuilder} handed out by
+ * {@link LoggerImpl#at}, whose primitive arguments are kept unboxed until they are appended to the message.
+ */
+final class LocalLogger implements LogBuilder, AutoCloseable {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final int INITIAL_ARGUMENT_CAPACITY = 8;
+
+    private static final byte LONG_ARGUMENT = 0;
+
+    private static final byte DOUBLE_ARGUMENT = 1;
+
+    private static final byte FLOAT_ARGUMENT = 2;
+
+    private static final byte BOOLEAN_ARGUMENT = 3;
+
+    private static final byte CHAR_ARGUMENT = 4;
+
+    private static final byte OBJECT_ARGUMENT = 5;
+
+    private static final ThreadLocal<LocalLogger> LOCAL_LOGGER = ThreadLocal.withInitial(LocalLogger::new);
+
+    /**
+     * <code>Thread.isVirtual()</code> if the runtime has virtual threads.
+     */
+    @Nullable
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
 
     private final StringBuilder builder = new StringBuilder();
 
-    private long timestampMillis;
+    private boolean inUse;
+
+    /**
+     * Pool the context is returned to when closed, if it has been borrowed by a virtual thread.
+     */
+    @Nullable
+    private LocalLoggerPool pool;
+
+    private LogQueue logQueue;
+
+    private long timestamp;
 
     private Level level;
 
+    private String loggerName;
+
     private Map<String, String> mdc;
 
     private String threadName;
 
-    private String throwableString;
+    private Throwable throwable;
+
+    private final Object[] deferredArguments = new Object[2];
+
+    private byte[] argumentTypes = new byte[INITIAL_ARGUMENT_CAPACITY];
+
+    /**
+     * Values of the primitive arguments, floating point ones as their raw bits.
+     */
+    private long[] primitiveArguments = new long[INITIAL_ARGUMENT_CAPACITY];
 
+    private Object[] objectArguments = new Object[INITIAL_ARGUMENT_CAPACITY];
+
+    private int argumentCount;
+
+    /**
+     * @return the context of the current thread, or a new one if the thread's context is busy with an outer call
+     * that logs again while formatting its arguments. Virtual threads borrow a context from the queue's pool instead.
+     */
     @Nonnull
-    private final LogQueue logQueue;
+    static LocalLogger acquire(@Nonnull LogQueue logQueue) {
 
-    LocalLogger(@Nonnull LogQueue logQueue) {
-        this.logQueue = logQueue;
+        final var virtualThreadPool = logQueue.getVirtualThreadPool();
+        if (virtualThreadPool != null && isVirtual(Thread.currentThread())) {
+            final var localLogger = virtualThreadPool.poll();
+            if (localLogger != null) {
+                return localLogger;
+            }
+            final var newLocalLogger = new LocalLogger();
+            newLocalLogger.pool = virtualThreadPool;
+            return newLocalLogger;
+        }
+
+        final var localLogger = LOCAL_LOGGER.get();
+        if (localLogger.inUse) {
+            return new LocalLogger();
+        }
+
+        localLogger.inUse = true;
+        return localLogger;
+    }
+
+    @Nullable
+    private static MethodHandle findIsVirtual() {
+
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(@Nonnull Thread thread) {
+
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return pool of contexts for virtual threads, or <code>null</code> if the runtime has none or the pool is off
+     */
+    @Nullable
+    static LocalLoggerPool createVirtualThreadPool(@Nonnull Config config) {
+
+        if (IS_VIRTUAL == null) {
+            return null;
+        }
+
+        final var size = Integer.parseInt(config.getProperty("virtualThreadPoolSize",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 4)));
+        if (size < 0) {
+            throw new IllegalArgumentException("Property virtualThreadPoolSize must not be negative: " + size);
+        }
+
+        return size == 0 ? null : new LocalLoggerPool(size);
     }
 
     private void finish() {
-        logQueue.publish(timestampMillis, level, mdc, threadName, throwableString, builder);
+        logQueue.publish(timestamp, level, loggerName, mdc, threadName, throwable, builder);
     }
 
-    void initAppender(@Nonnull Level level) {
-        timestampMillis = System.currentTimeMillis();
+    void initAppender(@Nonnull LogQueue logQueue, @Nonnull String loggerName, @Nonnull Level level) {
+        this.logQueue = logQueue;
+        timestamp = logQueue.timestamp();
         this.level = level;
+        this.loggerName = loggerName;
         mdc = ((MDCAdapterImpl) MDC.getMDCAdapter()).getPropertyMap();
+        // the thread keeps its name as a String that getName() returns as is, so a rename is seen on the next event and
+        // an unchanged name is the same instance the transport's thread name dictionary is keyed by
         threadName = Thread.currentThread().getName();
     }
 
+    /**
+     * Hands the message over to be formatted on the consumer thread if deferred formatting is enabled and the argument
+     * is immutable.
+     *
+     * @return <code>false</code> if the message must be formatted by the caller
+     */
+    boolean defer(@Nonnull String format, @Nullable Object arg) {
+
+        if (!logQueue.isDeferredFormatting() || !isImmutable(arg)) {
+            return false;
+        }
+
+        deferredArguments[0] = arg;
+        logQueue.publishDeferred(timestamp, level, loggerName, mdc, threadName, format, deferredArguments, 1);
+        return true;
+    }
+
+    boolean defer(@Nonnull String format, @Nullable Object arg1, @Nullable Object arg2) {
+
+        if (!logQueue.isDeferredFormatting() || !isImmutable(arg1) || !isImmutable(arg2)) {
+            return false;
+        }
+
+        deferredArguments[0] = arg1;
+        deferredArguments[1] = arg2;
+        logQueue.publishDeferred(timestamp, level, loggerName, mdc, threadName, format, deferredArguments, 2);
+        return true;
+    }
+
+    boolean defer(@Nonnull String format, @Nonnull Object[] arguments) {
+
+        if (!logQueue.isDeferredFormatting() || arguments.length > LogEntry.MAX_DEFERRED_ARGUMENTS) {
+            return false;
+        }
+
+        for (final var argument : arguments) {
+            if (!isImmutable(argument)) {
+                return false;
+            }
+        }
+
+        logQueue.publishDeferred(timestamp, level, loggerName, mdc, threadName, format, arguments,
+                arguments.length);
+        return true;
+    }
+
+    /**
+     * Formats a deferred message on the consumer thread.
+     */
+    @Nonnull
+    StringBuilder formatDeferred(@Nonnull String format, @Nonnull Object[] arguments, int argumentCount) {
+
+        builder.setLength(0);
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            builder.trimToSize();
+        }
+
+        var start = 0;
+        for (int i = 0; i < argumentCount; i++) {
+            start = appendNext(format, start, arguments[i], false);
+        }
+        builder.append(format, start, format.length());
+        return builder;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(long value) {
+        addPrimitiveArgument(LONG_ARGUMENT, value);
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(double value) {
+        addPrimitiveArgument(DOUBLE_ARGUMENT, Double.doubleToRawLongBits(value));
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(float value) {
+        addPrimitiveArgument(FLOAT_ARGUMENT, Float.floatToRawIntBits(value));
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(boolean value) {
+        addPrimitiveArgument(BOOLEAN_ARGUMENT, value ? 1 : 0);
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(char value) {
+        addPrimitiveArgument(CHAR_ARGUMENT, value);
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(@Nullable Object value) {
+        ensureArgumentCapacity();
+        argumentTypes[argumentCount] = OBJECT_ARGUMENT;
+        objectArguments[argumentCount] = value;
+        argumentCount++;
+        return this;
+    }
+
+    @Override
+    public void log(@Nullable String format) {
+
+        try {
+            final var last = argumentCount - 1;
+            if (format == null) {
+                if (last >= 0 && argumentTypes[last] == OBJECT_ARGUMENT) {
+                    appendNull(objectArguments[last]);
+                } else {
+                    appendNull();
+                }
+            } else {
+                var start = 0;
+                for (int i = 0; i <= last; i++) {
+                    start = appendArgument(format, start, i, i == last);
+                }
+                appendTail(format, start);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void addPrimitiveArgument(byte type, long value) {
+        ensureArgumentCapacity();
+        argumentTypes[argumentCount] = type;
+        primitiveArguments[argumentCount] = value;
+        argumentCount++;
+    }
+
+    private void ensureArgumentCapacity() {
+        if (argumentCount == argumentTypes.length) {
+            final var capacity = argumentCount * 2;
+            argumentTypes = Arrays.copyOf(argumentTypes, capacity);
+            primitiveArguments = Arrays.copyOf(primitiveArguments, capacity);
+            objectArguments = Arrays.copyOf(objectArguments, capacity);
+        }
+    }
+
+    private int appendArgument(@Nonnull String format, int start, int i, boolean last) {
+
+        final var type = argumentTypes[i];
+        if (type == OBJECT_ARGUMENT) {
+            return appendNext(format, start, objectArguments[i], last);
+        }
+
+        final var index = appendPrefix(format, start);
+        if (index == -1) {
+            return format.length();
+        }
+
+        final var value = primitiveArguments[i];
+        switch (type) {
+            case LONG_ARGUMENT -> builder.append(value);
+            case DOUBLE_ARGUMENT -> builder.append(Double.longBitsToDouble(value));
+            case FLOAT_ARGUMENT -> builder.append(Float.intBitsToFloat((int) value));
+            case BOOLEAN_ARGUMENT -> builder.append(value != 0);
+            case CHAR_ARGUMENT -> builder.append((char) value);
+            default -> throw new IllegalStateException("Invalid argument type: " + type);
+        }
+        return index + 2;
+    }
+
+    private static boolean isImmutable(@Nullable Object o) {
+        return o == null
+               || o instanceof String
+               || o instanceof Integer
+               || o instanceof Long
+               || o instanceof Boolean
+               || o instanceof Character
+               || o instanceof Double
+               || o instanceof Float
+               || o instanceof Short
+               || o instanceof Byte
+               || o instanceof Enum;
+    }
+
     int appendNext(@Nonnull String format, int start, @Nullable Object arg, boolean last) {
+        final var index = appendPrefix(format, start);
+        if (index == -1) {
+            if (last && arg instanceof Throwable throwable) {
+                appendThrowable(throwable);
+            }
+            return format.length();
+        }
+        deeplyAppendParameter(arg);
+        return index + 2;
+    }
+
+    /**
+     * Appends the text preceding the next placeholder, or the rest of the format if there is none.
+     *
+     * @return the index of the placeholder, or <code>-1</code>
+     */
+    private int appendPrefix(@Nonnull String format, int start) {
         final var length = format.length();
         var fromIndex = start;
         while (fromIndex + 1 < length) {
@@ -52,8 +378,7 @@ final class LocalLogger implements AutoCloseable {
                 if (index > fromIndex && format.charAt(index - 1) == '\\') {
                     if (index - 1 > fromIndex && format.charAt(index - 2) == '\\') {
                         builder.append(format, start, index - 1);
-                        deeplyAppendParameter(arg);
-                        return index + 2;
+                        return index;
                     } else {
                         builder.append(format, start, index - 1);
                         start = index;
@@ -61,8 +386,7 @@ final class LocalLogger implements AutoCloseable {
                     }
                 } else {
                     builder.append(format, start, index);
-                    deeplyAppendParameter(arg);
-                    return index + 2;
+                    return index;
                 }
             } else {
                 fromIndex = index + 1;
@@ -71,10 +395,7 @@ final class LocalLogger implements AutoCloseable {
         if (start < length) {
             builder.append(format, start, length);
         }
-        if (last && arg instanceof Throwable throwable) {
-            appendThrowable(throwable);
-        }
-        return length;
+        return -1;
     }
 
     void appendTail(@Nonnull String format, int start) {
@@ -103,21 +424,32 @@ final class LocalLogger implements AutoCloseable {
         finish();
     }
 
+    /**
+     * The stack trace is rendered by the publisher on the consumer thread from a snapshot taken now.
+     */
     private void appendThrowable(@Nonnull Throwable throwable) {
-        final var stringWriter = new StringWriter();
-        final var printWriter = new PrintWriter(stringWriter);
-        throwable.printStackTrace(printWriter);
-        printWriter.flush();
-        stringWriter.flush();
-        throwableString = stringWriter.toString();
+        this.throwable = ThrowableSnapshot.of(throwable);
     }
 
     @Override
     public void close() {
+        inUse = false;
+        logQueue = null;
+        loggerName = null;
         mdc = null;
         threadName = null;
-        throwableString = null;
+        throwable = null;
+        deferredArguments[0] = null;
+        deferredArguments[1] = null;
+        Arrays.fill(objectArguments, 0, argumentCount, null);
+        argumentCount = 0;
         builder.setLength(0);
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            builder.trimToSize();
+        }
+        if (pool != null) {
+            pool.offer(this);
+        }
     }
 
     // special treatment of array values was suggested by 'lizongbo'
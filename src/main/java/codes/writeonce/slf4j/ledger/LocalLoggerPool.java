@@ -0,0 +1,59 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free pool of formatting contexts for threads that do not live long enough to keep their own.
+ */
+final class LocalLoggerPool {
+
+    @Nonnull
+    private final AtomicReferenceArray<LocalLogger> slots;
+
+    private final int size;
+
+    LocalLoggerPool(int size) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.slots = new AtomicReferenceArray<>(size);
+        this.size = size;
+    }
+
+    @Nullable
+    LocalLogger poll() {
+
+        final var start = probe();
+        for (int i = 0; i < size; i++) {
+            final var index = (start + i) % size;
+            final var localLogger = slots.get(index);
+            if (localLogger != null && slots.compareAndSet(index, localLogger, null)) {
+                return localLogger;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the context to the pool, or lets it go if the pool is full.
+     */
+    void offer(@Nonnull LocalLogger localLogger) {
+
+        final var start = probe();
+        for (int i = 0; i < size; i++) {
+            final var index = (start + i) % size;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, localLogger)) {
+                return;
+            }
+        }
+    }
+
+    private int probe() {
+        return (int) (Thread.currentThread().getId() % size);
+    }
+}
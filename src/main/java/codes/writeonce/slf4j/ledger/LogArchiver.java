@@ -0,0 +1,141 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.slf4j.helpers.Util;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Compresses rolled log files into the archive on at most the given number of threads, which bounds the cores taken
+ * by archiving. The threads are started on demand and stop when idle. A file that fails to be archived is left in
+ * place, to be picked up again on the next start. Files compressed as they were written are only moved.
+ * <p>
+ * An existing archive file is never replaced: a file whose archive path is taken, such as the uncompressed and the
+ * compressed log files of the same hour left by runs with different settings, is archived under the first free name
+ * numbered after it, <code>prefix.yyyy-MM-dd-HH-1.log.gz</code> and so on.
+ */
+final class LogArchiver {
+
+    private static final PrefixThreadFactory ARCHIVER_THREAD_FACTORY = new PrefixThreadFactory("log-archiver-", false);
+
+    @Nonnull
+    private final Compressor compressor;
+
+    @Nonnull
+    private final ThreadPoolExecutor executor;
+
+    LogArchiver(@Nonnull Compressor compressor, int threads) {
+
+        this.compressor = compressor;
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                ARCHIVER_THREAD_FACTORY
+        );
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Nonnull
+    Compressor compressor() {
+        return compressor;
+    }
+
+    @Nonnull
+    String suffix() {
+        return compressor.suffix();
+    }
+
+    /**
+     * Compresses the log file into the archive file in the background, moves its timestamp index next to the archive
+     * file and deletes it.
+     */
+    void archive(@Nonnull Path logPath, @Nonnull Path archPath) {
+        executor.execute(() -> archiveNow(logPath, archPath));
+    }
+
+    /**
+     * Moves the log file compressed as it was written, along with its timestamp index, into the archive.
+     */
+    void move(@Nonnull Path logPath, @Nonnull Path archPath) {
+
+        try {
+            Files.createDirectories(archPath.getParent());
+            final var path = moveToFreePath(logPath, archPath);
+
+            final var indexPath = TimestampIndexWriter.indexPath(logPath);
+            if (Files.exists(indexPath)) {
+                Files.move(indexPath, TimestampIndexWriter.indexPath(path));
+            }
+        } catch (Throwable e) {
+            Util.report("Failed to archive log file: " + logPath, e);
+        }
+    }
+
+    private void archiveNow(@Nonnull Path logPath, @Nonnull Path archPath) {
+
+        final var tmpPath = archPath.resolveSibling(archPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(archPath.getParent());
+
+            try (var logStream = Files.newInputStream(logPath, READ);
+                 var tmpStream = Files.newOutputStream(tmpPath, CREATE, TRUNCATE_EXISTING, WRITE);
+                 var compressedStream = compressor.compress(tmpStream)) {
+                logStream.transferTo(compressedStream);
+            }
+            final var path = moveToFreePath(tmpPath, archPath);
+
+            // the offsets of the index refer to the uncompressed file
+            final var indexPath = TimestampIndexWriter.indexPath(logPath);
+            if (Files.exists(indexPath)) {
+                final var name = path.getFileName().toString();
+                final var logName = name.substring(0, name.length() - compressor.suffix().length());
+                Files.move(indexPath, TimestampIndexWriter.indexPath(path.resolveSibling(logName)));
+            }
+
+            Files.delete(logPath);
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (Throwable e2) {
+                e.addSuppressed(e2);
+            }
+            Util.report("Failed to compress log file: " + logPath, e);
+        }
+    }
+
+    /**
+     * Moves the file to the archive path, or to the first free path numbered after it if the archive path is taken.
+     *
+     * @return path the file has been moved to
+     */
+    @Nonnull
+    private static Path moveToFreePath(@Nonnull Path path, @Nonnull Path archPath) throws IOException {
+
+        final var name = archPath.getFileName().toString();
+        final var extensionStart = name.lastIndexOf(".log");
+        var target = archPath;
+        for (int number = 1; ; number++) {
+            try {
+                // without REPLACE_EXISTING the move fails rather than replace an existing file
+                return Files.move(path, target);
+            } catch (FileAlreadyExistsException e) {
+                target = archPath.resolveSibling(
+                        name.substring(0, extensionStart) + "-" + number + name.substring(extensionStart));
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Collects the arguments of a single message without boxing primitives. Arguments are substituted for the
+ * <code>{}</code> placeholders of the format in the order they were added.
+ * <p>
+ * A builder belongs to the calling thread until {@link #log} is called and must not be retained.
+ */
+public interface LogBuilder {
+
+    @Nonnull
+    LogBuilder arg(long value);
+
+    @Nonnull
+    LogBuilder arg(double value);
+
+    /**
+     * Appended as a <code>float</code>, as a boxed {@link Float} would be, rather than widened to <code>double</code>.
+     */
+    @Nonnull
+    LogBuilder arg(float value);
+
+    @Nonnull
+    LogBuilder arg(boolean value);
+
+    @Nonnull
+    LogBuilder arg(char value);
+
+    @Nonnull
+    LogBuilder arg(@Nullable Object value);
+
+    void log(@Nullable String format);
+}
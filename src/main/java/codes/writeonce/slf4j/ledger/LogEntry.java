@@ -4,18 +4,42 @@ import java.util.Map;
 
 final class LogEntry {
 
-    long timestampMillis;
+    /**
+     * Maximum number of arguments a message may have to be formatted on the consumer thread.
+     */
+    static final int MAX_DEFERRED_ARGUMENTS = 8;
+
+    /**
+     * In units of the precision of the queue's clock source.
+     */
+    long timestamp;
 
     Level level;
 
+    String loggerName;
+
     Map<String, String> mdc;
 
     String threadName;
 
-    String throwableString;
+    Throwable throwable;
 
     int textSize;
 
+    /**
+     * Format of a message to be formatted on the consumer thread, <code>null</code> if the text is in the text queue.
+     */
+    String format;
+
+    final Object[] arguments = new Object[MAX_DEFERRED_ARGUMENTS];
+
+    int argumentCount;
+
+    /**
+     * Tells the consumer to close the publisher, none of the other fields is set.
+     */
+    boolean close;
+
     LogEntry() {
         // empty
     }
@@ -1,70 +1,281 @@
 package codes.writeonce.slf4j.ledger;
 
+import org.slf4j.helpers.Util;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 final class LogQueue {
 
-    private static final int ENTRY_QUEUE_SIZE = 512;
+    private static final int DEFAULT_ENTRY_QUEUE_SIZE = 512;
+
+    private static final int DEFAULT_TEXT_QUEUE_SIZE = 64 * 1024;
 
-    private static final int TEXT_QUEUE_SIZE = 64 * 1024;
+    private final int entryQueueMask;
 
-    private final LogEntry[] entryQueue =
-            Stream.generate(LogEntry::new).limit(ENTRY_QUEUE_SIZE).toArray(LogEntry[]::new);
+    private final int textQueueSize;
 
-    private final char[] textQueue = new char[TEXT_QUEUE_SIZE];
+    private final int textQueueMask;
+
+    @Nonnull
+    private final LogEntry[] entryQueue;
 
-    private final CharBuffer charBuffer = CharBuffer.wrap(textQueue);
+    @Nonnull
+    private final char[] textQueue;
 
-    private final WorkerCursor consumerCursor = new WorkerCursor(ENTRY_QUEUE_SIZE, 0, 0, 1, TimeUnit.SECONDS,
-            new PrefixThreadFactory("log-publisher-", false), this::consumerLoop);
+    @Nonnull
+    private final CharBuffer charBuffer;
 
-    private final SimpleCursor freeCursor = new SimpleCursor(ENTRY_QUEUE_SIZE, ENTRY_QUEUE_SIZE, 0);
+    @Nonnull
+    private final Sequencer sequencer;
 
-    private final AtomicInteger textFillIndex = new AtomicInteger();
+    private final Sequence textFillSequence = new Sequence(0);
 
-    private final SimpleBatchCursor textFreeCursor = new SimpleBatchCursor(TEXT_QUEUE_SIZE, TEXT_QUEUE_SIZE, 0);
+    @Nonnull
+    private final SimpleBatchCursor textFreeCursor;
 
-    private final SimpleBatchCursor textConsumerCursor = new SimpleBatchCursor(TEXT_QUEUE_SIZE, 0, 0);
+    @Nonnull
+    private final SimpleBatchCursor textConsumerCursor;
 
     @Nonnull
     private final Publisher publisher;
 
+    @Nonnull
+    private final WaitStrategy textFillWaitStrategy;
+
+    @Nonnull
+    private final OverflowPolicy overflowPolicy;
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final boolean deferredFormatting;
+
+    @Nonnull
+    private final ClockSource clockSource;
+
+    @Nonnull
+    private final TimeUnit timestampPrecision;
+
+    @Nullable
+    private final LocalLoggerPool virtualThreadPool;
+
+    private final CountDownLatch publisherClosed = new CountDownLatch(1);
+
+    /**
+     * Consumer thread only.
+     */
+    private final LocalLogger deferredFormatter = new LocalLogger();
+
+    /**
+     * Consumer thread only.
+     */
+    private final Object[] deferredArguments = new Object[LogEntry.MAX_DEFERRED_ARGUMENTS];
+
+    /**
+     * Consumer thread only.
+     */
+    private boolean closed;
+
+    /**
+     * Consumer thread only.
+     */
+    private char[] deferredText = new char[0];
+
+    /**
+     * Consumer thread only.
+     */
+    private CharBuffer deferredTextBuffer = CharBuffer.wrap(deferredText);
+
     LogQueue(@Nonnull Publisher publisher) {
+        this(publisher, new Config());
+    }
+
+    LogQueue(@Nonnull Publisher publisher, @Nonnull Config config) {
+
+        final var entryQueueSize = getPowerOfTwo(config, "entryQueueSize", DEFAULT_ENTRY_QUEUE_SIZE);
+        textQueueSize = getPowerOfTwo(config, "textQueueSize", DEFAULT_TEXT_QUEUE_SIZE);
+        entryQueueMask = entryQueueSize - 1;
+        textQueueMask = textQueueSize - 1;
+
+        entryQueue = Stream.generate(LogEntry::new).limit(entryQueueSize).toArray(LogEntry[]::new);
+        textQueue = new char[textQueueSize];
+        charBuffer = CharBuffer.wrap(textQueue);
+        sequencer = new Sequencer(entryQueueSize, createWaitStrategy(config, entryQueueSize), 1, TimeUnit.SECONDS,
+                new PrefixThreadFactory("log-publisher-", false), this::consumerLoop, this::idle);
+        textFreeCursor = new SimpleBatchCursor(textQueueSize, textQueueSize, 0);
+        textConsumerCursor = new SimpleBatchCursor(textQueueSize, 0, 0);
+
         this.publisher = publisher;
+        this.textFillWaitStrategy = createWaitStrategy(config, entryQueueSize);
+        this.overflowPolicy = createOverflowPolicy(config);
+        this.deferredFormatting = Boolean.parseBoolean(config.getProperty("deferredFormatting", "false"));
+        this.clockSource = createClockSource(config);
+        this.timestampPrecision = clockSource.precision();
+        this.virtualThreadPool = LocalLogger.createVirtualThreadPool(config);
+    }
+
+    private static int getPowerOfTwo(@Nonnull Config config, @Nonnull String name, int defaultValue) {
+
+        final var value = Integer.parseInt(config.getProperty(name, String.valueOf(defaultValue)));
+        if (value <= 0 || Integer.bitCount(value) != 1) {
+            throw new IllegalArgumentException("Property " + name + " must be a power of two: " + value);
+        }
+        return value;
+    }
+
+    @Nonnull
+    private static WaitStrategy createWaitStrategy(@Nonnull Config config, int size) {
+
+        final var waitStrategy = config.getProperty("waitStrategy", "backoff");
+
+        return switch (waitStrategy) {
+            case "spin" -> new SpinWaitStrategy();
+            case "backoff" -> new BackoffWaitStrategy(
+                    size,
+                    Integer.parseInt(config.getProperty("waitSpinTries", "100")),
+                    Integer.parseInt(config.getProperty("waitYieldTries", "100")),
+                    Long.parseLong(config.getProperty("waitParkNanos", "100000"))
+            );
+            default -> throw new IllegalArgumentException("Invalid wait strategy selected: " + waitStrategy);
+        };
+    }
+
+    @Nonnull
+    private static OverflowPolicy createOverflowPolicy(@Nonnull Config config) {
+
+        final var overflowPolicy = config.getProperty("overflowPolicy", "block");
+
+        return switch (overflowPolicy) {
+            case "block" -> new BlockingOverflowPolicy();
+            case "drop" -> new DroppingOverflowPolicy();
+            case "dropBelowLevel" -> new LevelOverflowPolicy(
+                    Level.valueOf(config.getProperty("overflowLevel", "WARN"))
+            );
+            case "timeout" -> new TimeoutOverflowPolicy(
+                    Long.parseLong(config.getProperty("overflowTimeoutMillis", "10")),
+                    TimeUnit.MILLISECONDS
+            );
+            default -> throw new IllegalArgumentException("Invalid overflow policy selected: " + overflowPolicy);
+        };
+    }
+
+    @Nonnull
+    private static ClockSource createClockSource(@Nonnull Config config) {
+
+        final var clock = config.getProperty("clock", "system");
+
+        return switch (clock) {
+            case "system" -> new SystemClockSource();
+            case "cached" -> new CachedClockSource(Long.parseLong(config.getProperty("clockTickMillis", "1")));
+            case "micros" -> new PreciseClockSource(TimeUnit.MICROSECONDS);
+            case "nanos" -> new PreciseClockSource(TimeUnit.NANOSECONDS);
+            default -> throw new IllegalArgumentException("Invalid clock selected: " + clock);
+        };
+    }
+
+    /**
+     * @return the current time in units of the configured clock's precision, as expected by the publish methods
+     */
+    public long timestamp() {
+        return clockSource.timestamp();
+    }
+
+    /**
+     * @return number of events dropped by the overflow policy because the entry queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return pool of formatting contexts borrowed by virtual threads, or <code>null</code> if there is none
+     */
+    @Nullable
+    LocalLoggerPool getVirtualThreadPool() {
+        return virtualThreadPool;
+    }
+
+    /**
+     * @return <code>true</code> if messages with immutable arguments may be formatted on the consumer thread
+     */
+    public boolean isDeferredFormatting() {
+        return deferredFormatting;
+    }
+
+    /**
+     * Publishes a message to be formatted on the consumer thread. The arguments must be immutable, they are copied
+     * into the queue.
+     */
+    public void publishDeferred(
+            long timestamp,
+            @Nonnull Level level,
+            @Nonnull String loggerName,
+            @Nullable Map<String, String> mdc,
+            @Nullable String threadName,
+            @Nonnull String format,
+            @Nonnull Object[] arguments,
+            int argumentCount
+    ) {
+        final var sequence = overflowPolicy.claim(sequencer, level);
+        if (sequence == -1) {
+            droppedCount.increment();
+            return;
+        }
+
+        final var logEntry = entryQueue[(int) sequence & entryQueueMask];
+        logEntry.timestamp = timestamp;
+        logEntry.level = level;
+        logEntry.loggerName = loggerName;
+        logEntry.mdc = mdc;
+        logEntry.threadName = threadName;
+        logEntry.throwable = null;
+        logEntry.textSize = 0;
+        logEntry.format = format;
+        System.arraycopy(arguments, 0, logEntry.arguments, 0, argumentCount);
+        logEntry.argumentCount = argumentCount;
+
+        sequencer.publish(sequence);
+
+        // keep the text queue order even though there is no text to copy
+        textFillWaitStrategy.await(textFillSequence, sequence);
+        textFillSequence.set(sequence + 1);
+        textFillWaitStrategy.signal(sequence + 1);
     }
 
     public void publish(
-            long timestampMillis,
+            long timestamp,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString,
+            @Nullable Throwable throwable,
             @Nonnull StringBuilder text
     ) {
-        final int index = publishEntry(timestampMillis, level, mdc, threadName, throwableString, text);
-
-        while (true) {
-            if (textFillIndex.get() == index) {
-                break;
-            }
+        final var sequence = publishEntry(timestamp, level, loggerName, mdc, threadName, throwable, text);
+        if (sequence == -1) {
+            droppedCount.increment();
+            return;
         }
 
+        textFillWaitStrategy.await(textFillSequence, sequence);
+
         int start = 0;
         var remained = text.length();
         while (remained > 0) {
             final var size = textFreeCursor.allocate(remained);
             final var p = textFreeCursor.next(size);
-            final var end = (p + size) % TEXT_QUEUE_SIZE;
+            final var end = (p + size) & textQueueMask;
             if (end > p || end == 0) {
                 text.getChars(start, start + size, textQueue, p);
             } else {
-                final var length = TEXT_QUEUE_SIZE - p;
+                final var length = textQueueSize - p;
                 text.getChars(start, start + length, textQueue, p);
                 text.getChars(start + length, start + size, textQueue, 0);
             }
@@ -73,36 +284,82 @@ final class LogQueue {
             remained -= size;
         }
 
-        textFillIndex.set((index + 1) % ENTRY_QUEUE_SIZE);
+        textFillSequence.set(sequence + 1);
+        textFillWaitStrategy.signal(sequence + 1);
+    }
+
+    /**
+     * Publishes the events queued so far and closes the publisher, waiting up to the timeout for the consumer to get
+     * there. The events logged afterwards are dropped.
+     *
+     * @return <code>true</code> if the publisher has been closed within the timeout
+     */
+    public boolean close(long timeout, @Nonnull TimeUnit timeoutUnits) throws InterruptedException {
+
+        final var deadline = System.nanoTime() + timeoutUnits.toNanos(timeout);
+        final var sequence = sequencer.tryNext(timeout, timeoutUnits);
+        if (sequence == -1) {
+            return false;
+        }
+
+        final var logEntry = entryQueue[(int) sequence & entryQueueMask];
+        logEntry.textSize = 0;
+        logEntry.format = null;
+        logEntry.close = true;
+
+        sequencer.publish(sequence);
+
+        // keep the text queue order even though there is no text to copy
+        textFillWaitStrategy.await(textFillSequence, sequence);
+        textFillSequence.set(sequence + 1);
+        textFillWaitStrategy.signal(sequence + 1);
+
+        return publisherClosed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
 
     private void publishInternal(
-            long timestampMillis,
+            long timestamp,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString,
+            @Nullable Throwable throwable,
             int textSize
     ) {
-        publisher.next(textSize, timestampMillis, level, mdc, threadName, throwableString);
+        // the events logged after the publisher is closed are dropped
+        var failed = closed;
+        if (!failed) {
+            try {
+                publisher.next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
+            } catch (Throwable e) {
+                reportFailure(e);
+                failed = true;
+            }
+        }
 
         if (textSize != 0) {
             var remained = textSize;
             while (true) {
                 final var size = textConsumerCursor.allocate(remained);
                 final var p = textConsumerCursor.next(size);
-                final var end = (p + size) % TEXT_QUEUE_SIZE;
+                final var end = (p + size) & textQueueMask;
                 final var last = remained == size;
-                charBuffer.position(p);
-                if (end > p || end == 0) {
-                    charBuffer.limit(end);
-                    publisher.chunk(last, charBuffer);
-                } else {
-                    charBuffer.limit(TEXT_QUEUE_SIZE);
-                    publisher.chunk(false, charBuffer);
-                    charBuffer.position(0);
-                    charBuffer.limit(end);
-                    publisher.chunk(last, charBuffer);
+                // the text of an event the publisher has failed on is still taken off the text queue
+                if (!failed) {
+                    try {
+                        if (end > p || end == 0) {
+                            charBuffer.limit(end == 0 ? textQueueSize : end).position(p);
+                            publisher.chunk(last, charBuffer);
+                        } else {
+                            charBuffer.limit(textQueueSize).position(p);
+                            publisher.chunk(false, charBuffer);
+                            charBuffer.limit(end).position(0);
+                            publisher.chunk(last, charBuffer);
+                        }
+                    } catch (Throwable e) {
+                        reportFailure(e);
+                        failed = true;
+                    }
                 }
                 textFreeCursor.publish(p, size);
                 if (last) {
@@ -113,52 +370,161 @@ final class LogQueue {
         }
     }
 
-    private int publishEntry(
-            long timestampMillis,
+    private void publishFormatted(
+            long timestamp,
+            @Nonnull Level level,
+            @Nonnull String loggerName,
+            @Nullable Map<String, String> mdc,
+            @Nullable String threadName,
+            @Nonnull String format,
+            int argumentCount
+    ) {
+        if (closed) {
+            Arrays.fill(deferredArguments, 0, argumentCount, null);
+            return;
+        }
+
+        final StringBuilder text;
+        try {
+            text = deferredFormatter.formatDeferred(format, deferredArguments, argumentCount);
+        } finally {
+            Arrays.fill(deferredArguments, 0, argumentCount, null);
+        }
+
+        final var textSize = text.length();
+        publisher.next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, null);
+
+        if (textSize != 0) {
+            if (deferredText.length < textSize) {
+                deferredText = new char[Math.max(textSize, deferredText.length * 2)];
+                deferredTextBuffer = CharBuffer.wrap(deferredText);
+            }
+            text.getChars(0, textSize, deferredText, 0);
+            deferredTextBuffer.limit(textSize).position(0);
+            publisher.chunk(true, deferredTextBuffer);
+        }
+    }
+
+    private long publishEntry(
+            long timestamp,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString,
+            @Nullable Throwable throwable,
             @Nonnull StringBuilder text
     ) {
-        final int index = freeCursor.next();
+        final var sequence = overflowPolicy.claim(sequencer, level);
+        if (sequence == -1) {
+            return -1;
+        }
 
-        final var logEntry = entryQueue[index];
-        logEntry.timestampMillis = timestampMillis;
+        final var logEntry = entryQueue[(int) sequence & entryQueueMask];
+        logEntry.timestamp = timestamp;
         logEntry.level = level;
+        logEntry.loggerName = loggerName;
         logEntry.mdc = mdc;
         logEntry.threadName = threadName;
-        logEntry.throwableString = throwableString;
+        logEntry.throwable = throwable;
         logEntry.textSize = text.length();
+        logEntry.format = null;
 
-        consumerCursor.publish(index);
-        return index;
+        sequencer.publish(sequence);
+        return sequence;
     }
 
     private void consumerLoop() {
 
         while (true) {
-            final var index = consumerCursor.next();
-            if (index == -1) {
+            final var sequence = sequencer.waitFor();
+            if (sequence == -1) {
                 break;
             }
 
-            final var logEntry = entryQueue[index];
+            final var logEntry = entryQueue[(int) sequence & entryQueueMask];
 
-            final var timestampMillis = logEntry.timestampMillis;
+            final var timestamp = logEntry.timestamp;
             final var level = logEntry.level;
+            final var loggerName = logEntry.loggerName;
             final var mdc = logEntry.mdc;
             final var threadName = logEntry.threadName;
-            final var throwableString = logEntry.throwableString;
+            final var throwable = logEntry.throwable;
             final var textSize = logEntry.textSize;
 
+            final var close = logEntry.close;
+            final var format = logEntry.format;
+            final var argumentCount = logEntry.argumentCount;
+            if (format != null) {
+                System.arraycopy(logEntry.arguments, 0, deferredArguments, 0, argumentCount);
+                Arrays.fill(logEntry.arguments, 0, argumentCount, null);
+                logEntry.format = null;
+            }
+
+            logEntry.loggerName = null;
             logEntry.mdc = null;
             logEntry.threadName = null;
-            logEntry.throwableString = null;
+            logEntry.throwable = null;
+            logEntry.close = false;
+
+            sequencer.release(sequence);
 
-            freeCursor.publish(index);
+            if (close) {
+                closePublisher();
+                continue;
+            }
+
+            try {
+                if (format == null) {
+                    publishInternal(timestamp, level, loggerName, mdc, threadName, throwable, textSize);
+                } else {
+                    publishFormatted(timestamp, level, loggerName, mdc, threadName, format, argumentCount);
+                }
 
-            publishInternal(timestampMillis, level, mdc, threadName, throwableString, textSize);
+                if (!closed && !sequencer.hasNext()) {
+                    publisher.endOfBatch();
+                }
+            } catch (Throwable e) {
+                reportFailure(e);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the publisher is to be told again after another live timeout of the consumer
+     */
+    private boolean idle() {
+
+        if (closed) {
+            return false;
+        }
+
+        try {
+            return publisher.idle();
+        } catch (Throwable e) {
+            reportFailure(e);
+            return false;
         }
     }
+
+    private void closePublisher() {
+
+        if (!closed) {
+            closed = true;
+            clockSource.close();
+            try {
+                publisher.endOfBatch();
+                publisher.close();
+            } catch (Throwable e) {
+                reportFailure(e);
+            }
+        }
+        publisherClosed.countDown();
+    }
+
+    /**
+     * The consumer outlives a failing publisher, since the producers would block on the full queue once it is gone.
+     */
+    private static void reportFailure(@Nonnull Throwable e) {
+        Util.report("Failed to publish log event", e);
+    }
 }
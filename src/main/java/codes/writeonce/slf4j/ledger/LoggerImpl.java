@@ -6,27 +6,31 @@ import org.slf4j.Marker;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-final class LoggerImpl implements Logger {
+final class LoggerImpl implements LedgerLogger {
 
     @Nullable
     private final String name;
 
-    private final boolean traceEnabled;
+    @Nonnull
+    private final String loggerName;
 
-    private final boolean debugEnabled;
+    /**
+     * Ordinal of the lowest enabled level, <code>Level.values().length</code> if the logger is off.
+     */
+    private volatile int threshold = Level.INFO.ordinal();
 
-    private final ThreadLocal<LocalLogger> localLoggerThreadLocal;
+    @Nonnull
+    private final LogQueue logQueue;
 
     LoggerImpl(@Nullable String name, @Nonnull LogQueue logQueue) {
         this.name = name;
-        traceEnabled = name != null && name.startsWith("com.cryptexclub");
-        debugEnabled = name != null && name.startsWith("com.cryptexclub");
-        localLoggerThreadLocal = ThreadLocal.withInitial(() -> new LocalLogger(logQueue));
+        loggerName = (name == null ? Logger.ROOT_LOGGER_NAME : name).intern();
+        this.logQueue = logQueue;
     }
 
     private void log(@Nonnull Level level, @Nullable String format) {
-        try (var localLogger = localLoggerThreadLocal.get()) {
-            localLogger.initAppender(level);
+        try (var localLogger = LocalLogger.acquire(logQueue)) {
+            localLogger.initAppender(logQueue, loggerName, level);
             if (format == null) {
                 localLogger.appendNull();
             } else {
@@ -36,11 +40,11 @@ final class LoggerImpl implements Logger {
     }
 
     private void log(@Nonnull Level level, @Nullable String format, @Nullable Object arg) {
-        try (var localLogger = localLoggerThreadLocal.get()) {
-            localLogger.initAppender(level);
+        try (var localLogger = LocalLogger.acquire(logQueue)) {
+            localLogger.initAppender(logQueue, loggerName, level);
             if (format == null) {
                 localLogger.appendNull(arg);
-            } else {
+            } else if (!localLogger.defer(format, arg)) {
                 int start = 0;
                 start = localLogger.appendNext(format, start, arg, true);
                 localLogger.appendTail(format, start);
@@ -49,11 +53,11 @@ final class LoggerImpl implements Logger {
     }
 
     private void log(@Nonnull Level level, @Nullable String format, @Nullable Object arg1, @Nullable Object arg2) {
-        try (var localLogger = localLoggerThreadLocal.get()) {
-            localLogger.initAppender(level);
+        try (var localLogger = LocalLogger.acquire(logQueue)) {
+            localLogger.initAppender(logQueue, loggerName, level);
             if (format == null) {
                 localLogger.appendNull(arg2);
-            } else {
+            } else if (!localLogger.defer(format, arg1, arg2)) {
                 int start = 0;
                 start = localLogger.appendNext(format, start, arg1, false);
                 start = localLogger.appendNext(format, start, arg2, true);
@@ -63,15 +67,15 @@ final class LoggerImpl implements Logger {
     }
 
     private void log(@Nonnull Level level, @Nullable String format, @Nullable Object... arguments) {
-        try (var localLogger = localLoggerThreadLocal.get()) {
-            localLogger.initAppender(level);
+        try (var localLogger = LocalLogger.acquire(logQueue)) {
+            localLogger.initAppender(logQueue, loggerName, level);
             if (format == null) {
                 if (arguments == null || arguments.length == 0) {
                     localLogger.appendNull();
                 } else {
                     localLogger.appendNull(arguments[arguments.length - 1]);
                 }
-            } else {
+            } else if (arguments == null || !localLogger.defer(format, arguments)) {
                 int start = 0;
                 if (arguments != null) {
                     var length = arguments.length;
@@ -89,8 +93,8 @@ final class LoggerImpl implements Logger {
     }
 
     private void log(@Nonnull Level level, @Nullable String format, @Nullable Throwable throwable) {
-        try (var localLogger = localLoggerThreadLocal.get()) {
-            localLogger.initAppender(level);
+        try (var localLogger = LocalLogger.acquire(logQueue)) {
+            localLogger.initAppender(logQueue, loggerName, level);
             if (format == null) {
                 localLogger.appendNull(throwable);
             } else {
@@ -101,47 +105,64 @@ final class LoggerImpl implements Logger {
         }
     }
 
+    @Nonnull
+    @Override
+    public LogBuilder at(@Nonnull Level level) {
+
+        if (threshold > level.ordinal()) {
+            return NoopLogBuilder.INSTANCE;
+        }
+
+        final var localLogger = LocalLogger.acquire(logQueue);
+        localLogger.initAppender(logQueue, loggerName, level);
+        return localLogger;
+    }
+
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
     @Override
     public String getName() {
-        return name == null ? Logger.ROOT_LOGGER_NAME : name;
+        return loggerName;
     }
 
     @Override
     public boolean isTraceEnabled() {
-        return traceEnabled;
+        return threshold <= Level.TRACE.ordinal();
     }
 
     @Override
     public void trace(String msg) {
-        if (traceEnabled) {
+        if (isTraceEnabled()) {
             log(Level.TRACE, msg);
         }
     }
 
     @Override
     public void trace(String format, Object arg) {
-        if (traceEnabled) {
+        if (isTraceEnabled()) {
             log(Level.TRACE, format, arg);
         }
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
-        if (traceEnabled) {
+        if (isTraceEnabled()) {
             log(Level.TRACE, format, arg1, arg2);
         }
     }
 
     @Override
     public void trace(String format, Object... arguments) {
-        if (traceEnabled) {
+        if (isTraceEnabled()) {
             log(Level.TRACE, format, arguments);
         }
     }
 
     @Override
     public void trace(String msg, Throwable t) {
-        if (traceEnabled) {
+        if (isTraceEnabled()) {
             log(Level.TRACE, msg, t);
         }
     }
@@ -178,40 +199,40 @@ final class LoggerImpl implements Logger {
 
     @Override
     public boolean isDebugEnabled() {
-        return debugEnabled;
+        return threshold <= Level.DEBUG.ordinal();
     }
 
     @Override
     public void debug(String msg) {
-        if (debugEnabled) {
+        if (isDebugEnabled()) {
             log(Level.DEBUG, msg);
         }
     }
 
     @Override
     public void debug(String format, Object arg) {
-        if (debugEnabled) {
+        if (isDebugEnabled()) {
             log(Level.DEBUG, format, arg);
         }
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
-        if (debugEnabled) {
+        if (isDebugEnabled()) {
             log(Level.DEBUG, format, arg1, arg2);
         }
     }
 
     @Override
     public void debug(String format, Object... arguments) {
-        if (debugEnabled) {
+        if (isDebugEnabled()) {
             log(Level.DEBUG, format, arguments);
         }
     }
 
     @Override
     public void debug(String msg, Throwable t) {
-        if (debugEnabled) {
+        if (isDebugEnabled()) {
             log(Level.DEBUG, msg, t);
         }
     }
@@ -248,32 +269,42 @@ final class LoggerImpl implements Logger {
 
     @Override
     public boolean isInfoEnabled() {
-        return true;
+        return threshold <= Level.INFO.ordinal();
     }
 
     @Override
     public void info(String msg) {
-        log(Level.INFO, msg);
+        if (isInfoEnabled()) {
+            log(Level.INFO, msg);
+        }
     }
 
     @Override
     public void info(String format, Object arg) {
-        log(Level.INFO, format, arg);
+        if (isInfoEnabled()) {
+            log(Level.INFO, format, arg);
+        }
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
-        log(Level.INFO, format, arg1, arg2);
+        if (isInfoEnabled()) {
+            log(Level.INFO, format, arg1, arg2);
+        }
     }
 
     @Override
     public void info(String format, Object... arguments) {
-        log(Level.INFO, format, arguments);
+        if (isInfoEnabled()) {
+            log(Level.INFO, format, arguments);
+        }
     }
 
     @Override
     public void info(String msg, Throwable t) {
-        log(Level.INFO, msg, t);
+        if (isInfoEnabled()) {
+            log(Level.INFO, msg, t);
+        }
     }
 
     @Override
@@ -308,32 +339,42 @@ final class LoggerImpl implements Logger {
 
     @Override
     public boolean isWarnEnabled() {
-        return true;
+        return threshold <= Level.WARN.ordinal();
     }
 
     @Override
     public void warn(String msg) {
-        log(Level.WARN, msg);
+        if (isWarnEnabled()) {
+            log(Level.WARN, msg);
+        }
     }
 
     @Override
     public void warn(String format, Object arg) {
-        log(Level.WARN, format, arg);
+        if (isWarnEnabled()) {
+            log(Level.WARN, format, arg);
+        }
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
-        log(Level.WARN, format, arg1, arg2);
+        if (isWarnEnabled()) {
+            log(Level.WARN, format, arg1, arg2);
+        }
     }
 
     @Override
     public void warn(String format, Object... arguments) {
-        log(Level.WARN, format, arguments);
+        if (isWarnEnabled()) {
+            log(Level.WARN, format, arguments);
+        }
     }
 
     @Override
     public void warn(String msg, Throwable t) {
-        log(Level.WARN, msg, t);
+        if (isWarnEnabled()) {
+            log(Level.WARN, msg, t);
+        }
     }
 
     @Override
@@ -368,32 +409,42 @@ final class LoggerImpl implements Logger {
 
     @Override
     public boolean isErrorEnabled() {
-        return true;
+        return threshold <= Level.ERROR.ordinal();
     }
 
     @Override
     public void error(String msg) {
-        log(Level.ERROR, msg);
+        if (isErrorEnabled()) {
+            log(Level.ERROR, msg);
+        }
     }
 
     @Override
     public void error(String format, Object arg) {
-        log(Level.ERROR, format, arg);
+        if (isErrorEnabled()) {
+            log(Level.ERROR, format, arg);
+        }
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
-        log(Level.ERROR, format, arg1, arg2);
+        if (isErrorEnabled()) {
+            log(Level.ERROR, format, arg1, arg2);
+        }
     }
 
     @Override
     public void error(String format, Object... arguments) {
-        log(Level.ERROR, format, arguments);
+        if (isErrorEnabled()) {
+            log(Level.ERROR, format, arguments);
+        }
     }
 
     @Override
     public void error(String msg, Throwable t) {
-        log(Level.ERROR, msg, t);
+        if (isErrorEnabled()) {
+            log(Level.ERROR, msg, t);
+        }
     }
 
     @Override
@@ -2,7 +2,6 @@ package codes.writeonce.slf4j.ledger;
 
 import org.slf4j.spi.MDCAdapter;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,27 +21,9 @@ import java.util.Map;
  */
 public final class MDCAdapterImpl implements MDCAdapter {
 
-    // The internal map is copied so as
-
-    // We wish to avoid unnecessarily copying of the map. To ensure
-    // efficient/timely copying, we have a variable keeping track of the last
-    // operation. A copy is necessary on 'put' or 'remove' but only if the last
-    // operation was a 'get'. Get operations never necessitate a copy nor
-    // successive 'put/remove' operations, only a get followed by a 'put/remove'
-    // requires copying the map.
-    // See http://jira.qos.ch/browse/LOGBACK-620 for the original discussion.
-
-    // We no longer use CopyOnInheritThreadLocal in order to solve LBCLASSIC-183
-    // Initially the contents of the thread local in parent and child threads
-    // reference the same map. However, as soon as a thread invokes the put()
-    // method, the maps diverge as they should.
-    private final ThreadLocal<Map<String, String>> copyOnThreadLocal = new ThreadLocal<Map<String, String>>();
-
-    private static final int WRITE_OPERATION = 1;
-    private static final int MAP_COPY_OPERATION = 2;
-
-    // keeps track of the last operation performed
-    private final ThreadLocal<Integer> lastOperation = new ThreadLocal<Integer>();
+    // The context map is immutable: every write replaces the thread's map with an updated copy, so the map handed out
+    // by getPropertyMap is a snapshot that later writes never touch and that needs no copying nor synchronization.
+    private final ThreadLocal<MdcMap> contextMap = new ThreadLocal<>();
 
     public MDCAdapterImpl() {
         // empty
@@ -65,15 +46,8 @@ public final class MDCAdapterImpl implements MDCAdapter {
             throw new IllegalArgumentException("key cannot be null");
         }
 
-        Map<String, String> oldMap = copyOnThreadLocal.get();
-        Integer lastOp = getAndSetLastOperation(WRITE_OPERATION);
-
-        if (wasLastOpReadOrNull(lastOp) || oldMap == null) {
-            Map<String, String> newMap = duplicateAndInsertNewMap(oldMap);
-            newMap.put(key, val);
-        } else {
-            oldMap.put(key, val);
-        }
+        final var oldMap = contextMap.get();
+        contextMap.set((oldMap == null ? MdcMap.EMPTY : oldMap).with(key, val));
     }
 
     /**
@@ -82,7 +56,7 @@ public final class MDCAdapterImpl implements MDCAdapter {
      */
     @Override
     public String get(String key) {
-        final Map<String, String> map = copyOnThreadLocal.get();
+        final var map = contextMap.get();
         if ((map != null) && (key != null)) {
             return map.get(key);
         } else {
@@ -99,25 +73,17 @@ public final class MDCAdapterImpl implements MDCAdapter {
         if (key == null) {
             return;
         }
-        Map<String, String> oldMap = copyOnThreadLocal.get();
+        final var oldMap = contextMap.get();
         if (oldMap == null) {
             return;
         }
 
-        Integer lastOp = getAndSetLastOperation(WRITE_OPERATION);
-
-        if (wasLastOpReadOrNull(lastOp)) {
-            Map<String, String> newMap = duplicateAndInsertNewMap(oldMap);
-            newMap.remove(key);
-        } else {
-            oldMap.remove(key);
-        }
+        contextMap.set(oldMap.without(key));
     }
 
     @Override
     public void clear() {
-        lastOperation.set(WRITE_OPERATION);
-        copyOnThreadLocal.remove();
+        contextMap.remove();
     }
 
     /**
@@ -126,55 +92,31 @@ public final class MDCAdapterImpl implements MDCAdapter {
      */
     @Override
     public Map<String, String> getCopyOfContextMap() {
-        Map<String, String> hashMap = copyOnThreadLocal.get();
-        if (hashMap == null) {
+        final var map = contextMap.get();
+        if (map == null) {
             return null;
         } else {
-            return new HashMap<String, String>(hashMap);
+            return new HashMap<>(map);
         }
     }
 
+    /**
+     * Set the current thread's context map by first clearing any existing map and
+     * then copying the map passed as parameter.
+     *
+     * @throws IllegalArgumentException in case the map holds a null key, just like
+     *                                  {@link #put(String, String)} does
+     */
     @Override
     public void setContextMap(Map<String, String> contextMap) {
-        lastOperation.set(WRITE_OPERATION);
-
-        Map<String, String> newMap = Collections.synchronizedMap(new HashMap<String, String>());
-        newMap.putAll(contextMap);
-
-        // the newMap replaces the old one for serialisation's sake
-        copyOnThreadLocal.set(newMap);
+        this.contextMap.set(MdcMap.of(contextMap));
     }
 
     /**
      * Get the current thread's MDC as a map. This method is intended to be used
-     * internally.
+     * internally. The returned map is immutable and may be null.
      */
-    Map<String, String> getPropertyMap() {
-        lastOperation.set(MAP_COPY_OPERATION);
-        return copyOnThreadLocal.get();
-    }
-
-    private Integer getAndSetLastOperation(int op) {
-        Integer lastOp = lastOperation.get();
-        lastOperation.set(op);
-        return lastOp;
-    }
-
-    private boolean wasLastOpReadOrNull(Integer lastOp) {
-        return lastOp == null || lastOp.intValue() == MAP_COPY_OPERATION;
-    }
-
-    private Map<String, String> duplicateAndInsertNewMap(Map<String, String> oldMap) {
-        Map<String, String> newMap = Collections.synchronizedMap(new HashMap<String, String>());
-        if (oldMap != null) {
-            // we don't want the parent thread modifying oldMap while we are
-            // iterating over it
-            synchronized (oldMap) {
-                newMap.putAll(oldMap);
-            }
-        }
-
-        copyOnThreadLocal.set(newMap);
-        return newMap;
+    MdcMap getPropertyMap() {
+        return contextMap.get();
     }
 }
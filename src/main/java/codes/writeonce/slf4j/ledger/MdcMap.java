@@ -0,0 +1,171 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable MDC map kept as a pair of arrays sorted by key.
+ * <p>
+ * Updates return a new map and leave the original untouched, so a reference to the current map is a snapshot that can
+ * be handed to the log queue as is. MDCs hold a handful of entries, for which copying two small arrays is cheaper than
+ * any hashed structure.
+ */
+final class MdcMap extends AbstractMap<String, String> {
+
+    static final MdcMap EMPTY = new MdcMap(new String[0], new String[0]);
+
+    @Nonnull
+    private final String[] keys;
+
+    @Nonnull
+    private final String[] values;
+
+    private MdcMap(@Nonnull String[] keys, @Nonnull String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @throws IllegalArgumentException in case the map holds a null key, which the sorted keys cannot hold
+     */
+    @Nonnull
+    static MdcMap of(@Nonnull Map<String, String> map) {
+
+        var result = EMPTY;
+        for (final var entry : map.entrySet()) {
+            final var key = entry.getKey();
+            if (key == null) {
+                throw new IllegalArgumentException("key cannot be null");
+            }
+            result = result.with(key, entry.getValue());
+        }
+        return result;
+    }
+
+    @Nonnull
+    MdcMap with(@Nonnull String key, @Nullable String value) {
+
+        final var index = Arrays.binarySearch(keys, key);
+        if (index >= 0) {
+            if (values[index] == value) {
+                return this;
+            }
+            final var newValues = values.clone();
+            newValues[index] = value;
+            return new MdcMap(keys, newValues);
+        }
+
+        final var insertionPoint = -index - 1;
+        final var size = keys.length;
+        final var newKeys = new String[size + 1];
+        final var newValues = new String[size + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+        System.arraycopy(values, 0, newValues, 0, insertionPoint);
+        newKeys[insertionPoint] = key;
+        newValues[insertionPoint] = value;
+        System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1, size - insertionPoint);
+        System.arraycopy(values, insertionPoint, newValues, insertionPoint + 1, size - insertionPoint);
+        return new MdcMap(newKeys, newValues);
+    }
+
+    @Nonnull
+    MdcMap without(@Nonnull String key) {
+
+        final var index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return this;
+        }
+
+        final var size = keys.length - 1;
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        final var newKeys = new String[size];
+        final var newValues = new String[size];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(values, 0, newValues, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, size - index);
+        System.arraycopy(values, index + 1, newValues, index, size - index);
+        return new MdcMap(newKeys, newValues);
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final var index = Arrays.binarySearch(keys, key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public void forEach(@Nonnull BiConsumer<? super String, ? super String> action) {
+
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Nonnull
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+
+                        if (index == keys.length) {
+                            throw new NoSuchElementException();
+                        }
+
+                        final var entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+final class NoopLogBuilder implements LogBuilder {
+
+    static final NoopLogBuilder INSTANCE = new NoopLogBuilder();
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(long value) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(double value) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(float value) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(boolean value) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(char value) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public LogBuilder arg(@Nullable Object value) {
+        return this;
+    }
+
+    @Override
+    public void log(@Nullable String format) {
+        // empty
+    }
+}
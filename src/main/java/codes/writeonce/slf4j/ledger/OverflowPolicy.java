@@ -0,0 +1,14 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Decides what happens to an event when the entry ring is full.
+ */
+interface OverflowPolicy {
+
+    /**
+     * @return the claimed sequence, or <code>-1</code> if the event must be dropped
+     */
+    long claim(@Nonnull Sequencer sequencer, @Nonnull Level level);
+}
@@ -0,0 +1,22 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.OutputStream;
+
+/**
+ * Archives the log files as they are, so that they stay searchable with their timestamp indexes.
+ */
+final class PlainCompressor implements Compressor {
+
+    @Nonnull
+    @Override
+    public String suffix() {
+        return "";
+    }
+
+    @Nonnull
+    @Override
+    public OutputStream compress(@Nonnull OutputStream outputStream) {
+        return outputStream;
+    }
+}
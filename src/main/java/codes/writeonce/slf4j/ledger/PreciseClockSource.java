@@ -0,0 +1,35 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sub-millisecond clock backed by {@link Clock#systemUTC()}, as precise as the platform allows.
+ */
+final class PreciseClockSource implements ClockSource {
+
+    private final Clock clock = Clock.systemUTC();
+
+    @Nonnull
+    private final TimeUnit precision;
+
+    private final long nanosPerUnit;
+
+    PreciseClockSource(@Nonnull TimeUnit precision) {
+        this.precision = precision;
+        this.nanosPerUnit = precision.toNanos(1);
+    }
+
+    @Override
+    public long timestamp() {
+        final var instant = clock.instant();
+        return instant.getEpochSecond() * (1_000_000_000L / nanosPerUnit) + instant.getNano() / nanosPerUnit;
+    }
+
+    @Nonnull
+    @Override
+    public TimeUnit precision() {
+        return precision;
+    }
+}
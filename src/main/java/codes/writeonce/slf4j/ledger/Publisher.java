@@ -4,17 +4,52 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.nio.CharBuffer;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public interface Publisher {
 
+    /**
+     * Starts the next event, whose text is passed to {@link #chunk} unless it is empty.
+     * <p>
+     * If this or {@link #chunk} throws, the log queue reports the failure and goes on with the next event without
+     * passing the rest of the text, so the publisher must drop the failed event and be ready for the next one.
+     */
     void next(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     );
 
+    /**
+     * Passes a part of the text of the event, a failure drops the event as described for {@link #next}.
+     */
     void chunk(boolean last, @Nonnull CharBuffer charBuffer);
+
+    /**
+     * Called once the log queue has been drained, so buffered output may be flushed.
+     */
+    void endOfBatch();
+
+    /**
+     * Called on the consumer thread once no event has been published for a while, before the thread exits.
+     *
+     * @return <code>true</code> to be called again after another while rather than let the consumer thread exit,
+     * such as to finish buffered output that is not due yet
+     */
+    default boolean idle() {
+        return false;
+    }
+
+    /**
+     * Called once when the log queue is shut down, after the last event has been published. Nothing is published
+     * afterwards.
+     */
+    default void close() {
+        // empty
+    }
 }
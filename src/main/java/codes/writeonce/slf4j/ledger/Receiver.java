@@ -6,4 +6,9 @@ import java.nio.ByteBuffer;
 public interface Receiver {
 
     void next(long sequence, long offset, boolean last, @Nonnull ByteBuffer byteBuffer);
+
+    /**
+     * Drops the state carried over from the previous events before an event that was written without it.
+     */
+    void reset();
 }
@@ -11,6 +11,7 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.ZoneOffset.UTC;
 
@@ -24,26 +25,46 @@ public class RollingFilePublisher implements Publisher, AutoCloseable {
     private long nextMillis;
 
     public RollingFilePublisher(@Nonnull Config config) {
+        this(config, createCompressor(config));
+    }
+
+    /**
+     * @param compressor compressor of the archived log files, in place of the configured one
+     */
+    public RollingFilePublisher(@Nonnull Config config, @Nonnull Compressor compressor) {
 
         try {
             final var prefix = config.getProperty("prefix", "main");
             final var baseDir = ensureDir(Paths.get(config.getProperty("baseDir", "")).toAbsolutePath().toRealPath());
             final var archiveDir = ensureDir(baseDir.resolve("archive"));
             final var currentDir = ensureDir(baseDir.resolve("current"));
-            final var compressionLevel = Integer.parseInt(config.getProperty("compressionLevel", "0"));
-            if (compressionLevel < 0 || compressionLevel > 9) {
-                throw new IllegalArgumentException();
-            }
             final var compressionThreads = Integer.parseInt(config.getProperty("compressionThreads", "1"));
             if (compressionThreads < 1) {
                 throw new IllegalArgumentException();
             }
+            final var indexBlockSize = Integer.parseInt(config.getProperty("indexBlockSize", "65536"));
+            if (indexBlockSize < 1) {
+                throw new IllegalArgumentException();
+            }
+            final var inlineCompression = Boolean.parseBoolean(config.getProperty("inlineCompression", "false"));
+            final var compressionBlockSize = Integer.parseInt(config.getProperty("compressionBlockSize", "262144"));
+            if (compressionBlockSize < 1) {
+                throw new IllegalArgumentException();
+            }
+            final var compressionBlockMillis = Long.parseLong(config.getProperty("compressionBlockMillis", "1000"));
+            if (compressionBlockMillis < 0) {
+                throw new IllegalArgumentException();
+            }
             publisherFactory = new ArchivingFilePublisherFactory(
                     prefix,
                     archiveDir,
                     currentDir,
-                    compressionLevel,
-                    compressionThreads
+                    compressor,
+                    compressionThreads,
+                    indexBlockSize,
+                    inlineCompression,
+                    compressionBlockSize,
+                    compressionBlockMillis
             );
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -53,13 +74,16 @@ public class RollingFilePublisher implements Publisher, AutoCloseable {
     @Override
     public void next(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     ) {
-        checkRoll(timestampMillis).next(textSize, timestampMillis, level, mdc, threadName, throwableString);
+        checkRoll(timestampPrecision.toMillis(timestamp))
+                .next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
     }
 
     @Override
@@ -67,6 +91,19 @@ public class RollingFilePublisher implements Publisher, AutoCloseable {
         publisher.chunk(last, charBuffer);
     }
 
+    @Override
+    public void endOfBatch() {
+
+        if (publisher != null) {
+            publisher.endOfBatch();
+        }
+    }
+
+    @Override
+    public boolean idle() {
+        return publisher != null && publisher.idle();
+    }
+
     @Override
     public void close() {
 
@@ -102,11 +139,23 @@ public class RollingFilePublisher implements Publisher, AutoCloseable {
         );
     }
 
+    @Nonnull
+    private static Compressor createCompressor(@Nonnull Config config) {
+
+        final var compressor = config.getProperty("compressor", "gzip");
+
+        return switch (compressor) {
+            case "gzip" -> new GzipCompressor(Integer.parseInt(config.getProperty("compressionLevel", "1")));
+            case "none" -> new PlainCompressor();
+            default -> throw new IllegalArgumentException("Invalid compressor selected: " + compressor);
+        };
+    }
+
     @Nonnull
     private static Path ensureDir(@Nonnull Path baseDir) throws IOException {
 
         if (Files.exists(baseDir)) {
-            if (Files.isDirectory(baseDir)) {
+            if (!Files.isDirectory(baseDir)) {
                 throw new IllegalArgumentException();
             }
         } else {
@@ -0,0 +1,248 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Multi-producer, single-consumer sequencer over a ring of <code>size</code> slots.
+ * <p>
+ * Producers claim sequences from a shared counter and mark their slot as available independently of each other,
+ * so they never wait for their predecessors to publish. The consumer takes sequences strictly in order and is started
+ * on demand; it exits after staying idle for the live timeout, unless the idle task asks to be run again after another
+ * live timeout.
+ */
+final class Sequencer {
+
+    private static final int CONSUMER_SPIN_TRIES = 100;
+
+    private static final int PRODUCER_SPIN_TRIES = 100;
+
+    private static final long PRODUCER_PARK_NANOS = 100_000;
+
+    private final int size;
+
+    private final int mask;
+
+    private final int shift;
+
+    @Nonnull
+    private final Sequence claimSequence = new Sequence(-1);
+
+    @Nonnull
+    private final Sequence consumerSequence = new Sequence(-1);
+
+    @Nonnull
+    private final Sequence gatingSequenceCache = new Sequence(-1);
+
+    /**
+     * Round number (<code>sequence / size</code>) of the last sequence published into each slot.
+     */
+    @Nonnull
+    private final AtomicIntegerArray availableRounds;
+
+    @Nonnull
+    private final WaitStrategy gatingWaitStrategy;
+
+    private final AtomicBoolean alive = new AtomicBoolean();
+
+    private final AtomicReference<Thread> consumerWaiter = new AtomicReference<>();
+
+    @Nonnull
+    private final ThreadFactory threadFactory;
+
+    @Nonnull
+    private final Runnable worker;
+
+    @Nonnull
+    private final BooleanSupplier idleTask;
+
+    private final long liveTimeoutNanos;
+
+    Sequencer(
+            int size,
+            @Nonnull WaitStrategy gatingWaitStrategy,
+            long liveTimeout,
+            @Nonnull TimeUnit timeoutUnits,
+            @Nonnull ThreadFactory threadFactory,
+            @Nonnull Runnable worker,
+            @Nonnull BooleanSupplier idleTask
+    ) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.size = size;
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.availableRounds = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            availableRounds.set(i, -1);
+        }
+        this.gatingWaitStrategy = gatingWaitStrategy;
+        this.liveTimeoutNanos = timeoutUnits.toNanos(liveTimeout);
+        this.threadFactory = threadFactory;
+        this.worker = worker;
+        this.idleTask = idleTask;
+    }
+
+    /**
+     * Claims the next sequence, waiting for the consumer to release its slot if the ring is full.
+     */
+    public long next() {
+
+        final var sequence = claimSequence.incrementAndGet();
+        final var wrapPoint = sequence - size;
+
+        if (wrapPoint > gatingSequenceCache.get()) {
+            gatingWaitStrategy.await(consumerSequence, wrapPoint);
+            gatingSequenceCache.set(consumerSequence.get());
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Claims the next sequence only if its slot is free.
+     *
+     * @return the claimed sequence, or <code>-1</code> if the ring is full
+     */
+    public long tryNext() {
+
+        while (true) {
+            final var current = claimSequence.get();
+            final var sequence = current + 1;
+            final var wrapPoint = sequence - size;
+
+            if (wrapPoint > gatingSequenceCache.get()) {
+                final var gating = consumerSequence.get();
+                gatingSequenceCache.set(gating);
+                if (wrapPoint > gating) {
+                    return -1;
+                }
+            }
+
+            if (claimSequence.compareAndSet(current, sequence)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting up to <code>timeout</code> for a slot to become free.
+     *
+     * @return the claimed sequence, or <code>-1</code> if the ring stayed full
+     */
+    public long tryNext(long timeout, @Nonnull TimeUnit timeoutUnits) {
+
+        final var deadline = System.nanoTime() + timeoutUnits.toNanos(timeout);
+        var counter = 0;
+
+        while (true) {
+            final var sequence = tryNext();
+            if (sequence != -1) {
+                return sequence;
+            }
+
+            final var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            if (counter < PRODUCER_SPIN_TRIES) {
+                counter++;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, Math.min(remaining, PRODUCER_PARK_NANOS));
+            }
+        }
+    }
+
+    public void publish(long sequence) {
+
+        availableRounds.set((int) sequence & mask, (int) (sequence >>> shift));
+
+        final var waiter = consumerWaiter.get();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        } else if (!alive.get() && alive.compareAndSet(false, true)) {
+            threadFactory.newThread(worker).start();
+        }
+    }
+
+    /**
+     * Called by the consumer only.
+     *
+     * @return the next published sequence, or <code>-1</code> if nothing was published within the live timeout
+     * and the consumer must exit
+     */
+    public long waitFor() {
+
+        final var sequence = consumerSequence.get() + 1;
+        final var index = (int) sequence & mask;
+        final var round = (int) (sequence >>> shift);
+
+        var counter = 0;
+        var idleSince = 0L;
+
+        while (availableRounds.get(index) != round) {
+            if (counter < CONSUMER_SPIN_TRIES) {
+                counter++;
+                Thread.onSpinWait();
+                continue;
+            }
+
+            if (idleSince == 0) {
+                idleSince = System.nanoTime();
+            }
+
+            final var thread = Thread.currentThread();
+            consumerWaiter.set(thread);
+            // re-check after publishing the waiter, producers do the same in the opposite order
+            if (availableRounds.get(index) != round) {
+                LockSupport.parkNanos(this, liveTimeoutNanos);
+            }
+            consumerWaiter.set(null);
+
+            if (System.nanoTime() - idleSince >= liveTimeoutNanos) {
+                // run while still alive, so that the producers do not start another consumer meanwhile
+                if (idleTask.getAsBoolean()) {
+                    idleSince = System.nanoTime();
+                    continue;
+                }
+                alive.set(false);
+                // a producer that has missed the flag being cleared may still have published a sequence
+                if (availableRounds.get(index) != round || !alive.compareAndSet(false, true)) {
+                    return -1;
+                }
+            }
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Called by the consumer only.
+     *
+     * @return <code>true</code> if the sequence following the last released one is already published
+     */
+    public boolean hasNext() {
+
+        final var sequence = consumerSequence.get() + 1;
+        return availableRounds.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    /**
+     * Called by the consumer only, once the slot of <code>sequence</code> may be reused by producers.
+     */
+    public void release(long sequence) {
+
+        consumerSequence.set(sequence);
+        gatingWaitStrategy.signal(sequence);
+    }
+}
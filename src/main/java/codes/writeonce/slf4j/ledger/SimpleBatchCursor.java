@@ -2,10 +2,18 @@ package codes.writeonce.slf4j.ledger;
 
 import javax.annotation.Nonnull;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Each side of the cursor is used by a single thread at a time, so there is at most one thread waiting in
+ * {@link #allocate(int)}.
+ */
 final class SimpleBatchCursor {
 
-    private final int size;
+    private static final int SPIN_TRIES = 100;
+
+    private final int mask;
 
     private final AtomicInteger count;
 
@@ -15,11 +23,18 @@ final class SimpleBatchCursor {
     @Nonnull
     private final AtomicInteger tail;
 
+    private final AtomicReference<Thread> waiter = new AtomicReference<>();
+
     SimpleBatchCursor(int size, int count, int head) {
-        this.size = size;
+
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.mask = size - 1;
         this.count = new AtomicInteger(count);
         this.head = new AtomicInteger(head);
-        this.tail = new AtomicInteger((head + count) % size);
+        this.tail = new AtomicInteger((head + count) & mask);
     }
 
     public int allocate(int amount) {
@@ -28,6 +43,7 @@ final class SimpleBatchCursor {
             throw new IllegalArgumentException();
         }
 
+        var counter = 0;
         var c = count.get();
 
         while (true) {
@@ -38,25 +54,41 @@ final class SimpleBatchCursor {
                     return v;
                 }
                 c = n;
+            } else if (counter < SPIN_TRIES) {
+                counter++;
+                Thread.onSpinWait();
+                c = count.get();
             } else {
+                waiter.set(Thread.currentThread());
+                // re-check after publishing the waiter, publish() does the same in the opposite order
                 c = count.get();
+                if (c <= 0) {
+                    LockSupport.park(this);
+                    c = count.get();
+                }
+                waiter.set(null);
             }
         }
     }
 
     public int next(int amount) {
-        return head.getAndUpdate(i -> (i + amount) % size);
+        return head.getAndUpdate(i -> (i + amount) & mask);
     }
 
     public void publish(int index, int amount) {
 
         while (true) {
-            final var n = tail.compareAndExchange(index, (index + amount) % size);
+            final var n = tail.compareAndExchange(index, (index + amount) & mask);
             if (n == index) {
                 break;
             }
         }
 
         count.addAndGet(amount);
+
+        final var thread = waiter.get();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
 }
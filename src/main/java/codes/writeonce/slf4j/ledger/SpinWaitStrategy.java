@@ -0,0 +1,19 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+final class SpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void await(@Nonnull Sequence sequence, long value) {
+
+        while (sequence.get() < value) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void signal(long value) {
+        // empty
+    }
+}
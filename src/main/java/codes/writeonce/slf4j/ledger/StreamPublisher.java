@@ -2,67 +2,336 @@ package codes.writeonce.slf4j.ledger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.PrintStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.time.ZoneOffset.UTC;
 
+/**
+ * Encodes events as UTF-8 text lines straight into a reusable direct buffer that is written to the channel when it
+ * fills up and at the end of each batch.
+ */
 final class StreamPublisher implements Publisher {
 
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final byte[][] LEVEL_NAMES = createLevelNames();
+
+    private static final byte[] NULL = "null".getBytes(US_ASCII);
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(US_ASCII);
 
     @Nonnull
-    private final PrintStream printStream;
+    private final WritableByteChannel channel;
 
-    StreamPublisher(@Nonnull PrintStream printStream) {
-        dateFormat.setTimeZone(TimeZone.getTimeZone(UTC));
-        this.printStream = printStream;
-    }
+    @Nonnull
+    private final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * <code>[yyyy-MM-ddTHH:mm:ss.</code> of the {@link #cachedSecond}.
+     */
+    private final byte[] timestampPrefix = new byte[21];
+
+    private long cachedSecond = Long.MIN_VALUE;
+
+    @Nonnull
+    private final BiConsumer<String, String> mdcEntryWriter = this::putMdcEntry;
+
+    private boolean firstMdcEntry;
+
+    /**
+     * High surrogate of a pair split between text chunks.
+     */
+    private char highSurrogate;
+
+    @Nonnull
+    private final ThrowableRenderer throwableRenderer = new ThrowableRenderer();
+
+    @Nonnull
+    private final StringBuilder throwableText = new StringBuilder();
 
     @Nullable
-    private String throwableString;
+    private Throwable throwable;
+
+    /**
+     * Position in the channel of the first byte in the buffer.
+     */
+    private long flushedPosition;
+
+    StreamPublisher(@Nonnull WritableByteChannel channel) {
+        this(channel, 0);
+    }
+
+    /**
+     * @param position number of bytes already in the channel, to count {@link #position()} from
+     */
+    StreamPublisher(@Nonnull WritableByteChannel channel, long position) {
+        this.channel = channel;
+        this.flushedPosition = position;
+    }
 
     @Override
     public void next(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     ) {
-        printStream.print("[");
-        printStream.print(dateFormat.format(new Date(timestampMillis)));
-        printStream.print("] ");
-        printStream.print(level.getFormattedName());
-        printStream.print(" (");
-        printStream.print(threadName);
-        printStream.print(") ");
+        putTimestamp(timestamp, timestampPrecision);
+        putBytes(LEVEL_NAMES[level.ordinal()]);
+        putAscii(' ');
+        putAscii('(');
+        putString(threadName);
+        putAscii(')');
+        putAscii(' ');
+        putString(loggerName);
+        putAscii(' ');
+        putMdc(mdc);
         if (textSize == 0) {
-            printStream.println(mdc);
-            if (throwableString != null) {
-                printStream.print(throwableString);
+            putBytes(LINE_SEPARATOR);
+            if (throwable != null) {
+                putThrowable(throwable);
             }
         } else {
-            printStream.print(mdc);
-            printStream.print(" ");
-            this.throwableString = throwableString;
+            putAscii(' ');
+            this.throwable = throwable;
         }
     }
 
     @Override
     public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
-        printStream.append(charBuffer);
+
+        final var limit = charBuffer.limit();
+        for (int i = charBuffer.position(); i < limit; i++) {
+            putChar(charBuffer.get(i));
+        }
+        charBuffer.position(limit);
+
         if (last) {
-            printStream.println();
-            if (throwableString != null) {
-                printStream.print(throwableString);
-                throwableString = null;
+            if (highSurrogate != 0) {
+                putAscii('?');
+                highSurrogate = 0;
             }
+            putBytes(LINE_SEPARATOR);
+            if (throwable != null) {
+                putThrowable(throwable);
+                throwable = null;
+            }
+        }
+    }
+
+    @Override
+    public void endOfBatch() {
+        flush();
+    }
+
+    /**
+     * @return position in the channel the next byte is written at, including the bytes still buffered
+     */
+    long position() {
+        return flushedPosition + byteBuffer.position();
+    }
+
+    private void putTimestamp(long timestamp, @Nonnull TimeUnit precision) {
+
+        final var unitsPerSecond = precision.convert(1, TimeUnit.SECONDS);
+        final var second = Math.floorDiv(timestamp, unitsPerSecond);
+        if (second != cachedSecond) {
+            cacheTimestampPrefix(second);
+        }
+
+        putBytes(timestampPrefix);
+        var fraction = Math.floorMod(timestamp, unitsPerSecond);
+        var divisor = unitsPerSecond / 10;
+        while (divisor > 0) {
+            putAscii((char) ('0' + fraction / divisor));
+            fraction %= divisor;
+            divisor /= 10;
+        }
+        putAscii('Z');
+        putAscii(']');
+        putAscii(' ');
+    }
+
+    private void cacheTimestampPrefix(long second) {
+
+        final var dateTime = LocalDateTime.ofEpochSecond(second, 0, UTC);
+        final var b = timestampPrefix;
+        b[0] = '[';
+        putDigits(b, 1, dateTime.getYear(), 4);
+        b[5] = '-';
+        putDigits(b, 6, dateTime.getMonthValue(), 2);
+        b[8] = '-';
+        putDigits(b, 9, dateTime.getDayOfMonth(), 2);
+        b[11] = 'T';
+        putDigits(b, 12, dateTime.getHour(), 2);
+        b[14] = ':';
+        putDigits(b, 15, dateTime.getMinute(), 2);
+        b[17] = ':';
+        putDigits(b, 18, dateTime.getSecond(), 2);
+        b[20] = '.';
+        cachedSecond = second;
+    }
+
+    private static void putDigits(@Nonnull byte[] bytes, int offset, int value, int length) {
+
+        for (int i = offset + length - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private void putMdc(@Nullable Map<String, String> mdc) {
+
+        if (mdc == null) {
+            putBytes(NULL);
+        } else {
+            putAscii('{');
+            firstMdcEntry = true;
+            mdc.forEach(mdcEntryWriter);
+            putAscii('}');
+        }
+    }
+
+    private void putMdcEntry(@Nullable String key, @Nullable String value) {
+
+        if (firstMdcEntry) {
+            firstMdcEntry = false;
+        } else {
+            putAscii(',');
+            putAscii(' ');
+        }
+        putString(key);
+        putAscii('=');
+        putString(value);
+    }
+
+    private void putThrowable(@Nonnull Throwable throwable) {
+
+        throwableRenderer.render(throwable, throwableText);
+        putString(throwableText);
+        throwableText.setLength(0);
+        if (throwableText.capacity() > MAX_RETAINED_CAPACITY) {
+            throwableText.trimToSize();
+        }
+    }
+
+    private void putString(@Nullable CharSequence value) {
+
+        if (value == null) {
+            putBytes(NULL);
+        } else {
+            final var length = value.length();
+            for (int i = 0; i < length; i++) {
+                putChar(value.charAt(i));
+            }
+            if (highSurrogate != 0) {
+                putAscii('?');
+                highSurrogate = 0;
+            }
+        }
+    }
+
+    private void putChar(char c) {
+
+        if (c < 0x80) {
+            if (highSurrogate != 0) {
+                putAscii('?');
+                highSurrogate = 0;
+            }
+            putAscii(c);
+        } else if (Character.isHighSurrogate(c)) {
+            if (highSurrogate != 0) {
+                putAscii('?');
+            }
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            if (highSurrogate == 0) {
+                putAscii('?');
+            } else {
+                final var codePoint = Character.toCodePoint(highSurrogate, c);
+                highSurrogate = 0;
+                ensureRemaining(4);
+                byteBuffer.put((byte) (0xf0 | codePoint >> 18));
+                byteBuffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                byteBuffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                byteBuffer.put((byte) (0x80 | codePoint & 0x3f));
+            }
+        } else {
+            if (highSurrogate != 0) {
+                putAscii('?');
+                highSurrogate = 0;
+            }
+            if (c < 0x800) {
+                ensureRemaining(2);
+                byteBuffer.put((byte) (0xc0 | c >> 6));
+            } else {
+                ensureRemaining(3);
+                byteBuffer.put((byte) (0xe0 | c >> 12));
+                byteBuffer.put((byte) (0x80 | c >> 6 & 0x3f));
+            }
+            byteBuffer.put((byte) (0x80 | c & 0x3f));
+        }
+    }
+
+    private void putAscii(char c) {
+
+        if (!byteBuffer.hasRemaining()) {
+            flush();
+        }
+        byteBuffer.put((byte) c);
+    }
+
+    private void putBytes(@Nonnull byte[] bytes) {
+
+        ensureRemaining(bytes.length);
+        byteBuffer.put(bytes);
+    }
+
+    private void ensureRemaining(int length) {
+
+        if (byteBuffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() {
+
+        try {
+            byteBuffer.flip();
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+            flushedPosition += byteBuffer.position();
+            byteBuffer.clear();
+        } catch (IOException e) {
+            byteBuffer.clear();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Nonnull
+    private static byte[][] createLevelNames() {
+
+        final var levels = Level.values();
+        final var names = new byte[levels.length][];
+        for (final var level : levels) {
+            names[level.ordinal()] = level.getFormattedName().getBytes(US_ASCII);
         }
+        return names;
     }
 }
@@ -0,0 +1,18 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+final class SystemClockSource implements ClockSource {
+
+    @Override
+    public long timestamp() {
+        return System.currentTimeMillis();
+    }
+
+    @Nonnull
+    @Override
+    public TimeUnit precision() {
+        return TimeUnit.MILLISECONDS;
+    }
+}
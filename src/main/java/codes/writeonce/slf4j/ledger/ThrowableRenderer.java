@@ -0,0 +1,164 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders throwables into a reusable builder in the format of {@link Throwable#printStackTrace()}.
+ * <p>
+ * The frame lines of recently rendered stack traces are kept in a bounded LRU cache keyed by the frames, so a burst of
+ * errors thrown from the same place formats its stack trace once. Instances are confined to the publishing thread.
+ */
+public final class ThrowableRenderer {
+
+    private static final int CACHE_SIZE = 256;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final String CAUSE_CAPTION = "Caused by: ";
+
+    private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+
+    private final Map<Frames, RenderedFrames> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Frames, RenderedFrames> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public void render(@Nonnull Throwable throwable, @Nonnull StringBuilder builder) {
+
+        try {
+            dejaVu.add(throwable);
+            builder.append(throwable).append(LINE_SEPARATOR);
+            final var trace = throwable.getStackTrace();
+            appendFrames(builder, trace, trace.length, "");
+            for (final var suppressed : throwable.getSuppressed()) {
+                renderEnclosed(builder, suppressed, trace, SUPPRESSED_CAPTION, "\t");
+            }
+            final var cause = throwable.getCause();
+            if (cause != null) {
+                renderEnclosed(builder, cause, trace, CAUSE_CAPTION, "");
+            }
+        } finally {
+            dejaVu.clear();
+        }
+    }
+
+    private void renderEnclosed(
+            @Nonnull StringBuilder builder,
+            @Nonnull Throwable throwable,
+            @Nonnull StackTraceElement[] enclosingTrace,
+            @Nonnull String caption,
+            @Nonnull String prefix
+    ) {
+        if (!dejaVu.add(throwable)) {
+            builder.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable).append(']')
+                    .append(LINE_SEPARATOR);
+            return;
+        }
+
+        final var trace = throwable.getStackTrace();
+        var m = trace.length - 1;
+        var n = enclosingTrace.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+            m--;
+            n--;
+        }
+        final var framesInCommon = trace.length - 1 - m;
+
+        builder.append(prefix).append(caption).append(throwable).append(LINE_SEPARATOR);
+        appendFrames(builder, trace, m + 1, prefix);
+        if (framesInCommon != 0) {
+            builder.append(prefix).append("\t... ").append(framesInCommon).append(" more").append(LINE_SEPARATOR);
+        }
+        for (final var suppressed : throwable.getSuppressed()) {
+            renderEnclosed(builder, suppressed, trace, SUPPRESSED_CAPTION, prefix + "\t");
+        }
+        final var cause = throwable.getCause();
+        if (cause != null) {
+            renderEnclosed(builder, cause, trace, CAUSE_CAPTION, prefix);
+        }
+    }
+
+    private void appendFrames(
+            @Nonnull StringBuilder builder,
+            @Nonnull StackTraceElement[] trace,
+            int count,
+            @Nonnull String prefix
+    ) {
+        if (count == 0) {
+            return;
+        }
+
+        final var key = new Frames(trace);
+        var renderedFrames = cache.get(key);
+        if (renderedFrames == null) {
+            renderedFrames = new RenderedFrames(trace);
+            cache.put(key, renderedFrames);
+        }
+
+        final var text = renderedFrames.text;
+        final var ends = renderedFrames.ends;
+        var start = 0;
+        for (int i = 0; i < count; i++) {
+            builder.append(prefix).append(text, start, ends[i]);
+            start = ends[i];
+        }
+    }
+
+    private static final class Frames {
+
+        @Nonnull
+        private final StackTraceElement[] trace;
+
+        private final int hashCode;
+
+        Frames(@Nonnull StackTraceElement[] trace) {
+            this.trace = trace;
+            this.hashCode = Arrays.hashCode(trace);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Frames frames && hashCode == frames.hashCode && Arrays.equals(trace, frames.trace);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class RenderedFrames {
+
+        /**
+         * <code>\tat frame</code> lines of all frames.
+         */
+        @Nonnull
+        private final String text;
+
+        /**
+         * End offset of each line in the {@link #text}.
+         */
+        @Nonnull
+        private final int[] ends;
+
+        RenderedFrames(@Nonnull StackTraceElement[] trace) {
+            final var builder = new StringBuilder();
+            ends = new int[trace.length];
+            for (int i = 0; i < trace.length; i++) {
+                builder.append("\tat ").append(trace[i]).append(LINE_SEPARATOR);
+                ends[i] = builder.length();
+            }
+            text = builder.toString();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.IdentityHashMap;
+
+/**
+ * Copy of a throwable together with its causes and suppressed throwables, taken on the logging thread. The consumer
+ * renders what was true when the event was logged and runs no code of the application's throwables, and the queue
+ * holds no references to their objects.
+ */
+public final class ThrowableSnapshot extends Throwable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Nonnull
+    private final String className;
+
+    @Nonnull
+    private final String description;
+
+    @Nullable
+    private ThrowableSnapshot cause;
+
+    private ThrowableSnapshot(
+            @Nonnull String className,
+            @Nullable String message,
+            @Nonnull String description,
+            @Nonnull StackTraceElement[] stackTrace
+    ) {
+        super(message, null, true, true);
+        this.className = className;
+        this.description = description;
+        setStackTrace(stackTrace);
+    }
+
+    /**
+     * @return the throwable itself if it is a snapshot already, otherwise its snapshot
+     */
+    @Nonnull
+    static Throwable of(@Nonnull Throwable throwable) {
+
+        if (throwable instanceof ThrowableSnapshot) {
+            return throwable;
+        }
+
+        return copy(throwable, new IdentityHashMap<>());
+    }
+
+    @Nonnull
+    private static ThrowableSnapshot copy(
+            @Nonnull Throwable throwable,
+            @Nonnull IdentityHashMap<Throwable, ThrowableSnapshot> copies
+    ) {
+        final var existing = copies.get(throwable);
+        if (existing != null) {
+            // circular references are kept, so that they are rendered as such
+            return existing;
+        }
+
+        final var className = throwable.getClass().getName();
+        String message;
+        String description;
+        try {
+            message = throwable.getLocalizedMessage();
+            description = throwable.toString();
+        } catch (Throwable e) {
+            message = null;
+            description = className;
+        }
+
+        final var snapshot = new ThrowableSnapshot(className, message, description, throwable.getStackTrace());
+        copies.put(throwable, snapshot);
+        for (final var suppressed : throwable.getSuppressed()) {
+            snapshot.addSuppressed(copy(suppressed, copies));
+        }
+        final var cause = throwable.getCause();
+        if (cause != null) {
+            snapshot.cause = copy(cause, copies);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the name of the class of the original throwable
+     */
+    @Nonnull
+    public String getClassName() {
+        return className;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,308 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import static codes.writeonce.slf4j.ledger.TimestampIndexWriter.ENTRY_SIZE;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Extracts the events of a time window from a text log file written by the {@link RollingFilePublisher}.
+ * <p>
+ * The blocks of the file that may hold events of the window are looked up in the side index written by
+ * {@link TimestampIndexWriter}, and only they are read. Without an index the whole file is read.
+ * <p>
+ * Files with the <code>.gz</code> suffix are decompressed. Those compressed as they were written are made of
+ * compressed blocks, so the blocks of the window are decompressed alone, and an unfinished last block of a file still
+ * being written is read as far as it goes.
+ */
+public final class TimeRangeQuery {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Length of <code>[yyyy-MM-ddTHH:mm:ss.</code> that starts every event.
+     */
+    private static final int TIMESTAMP_PREFIX_LENGTH = 21;
+
+    @Nonnull
+    private final OutputStream outputStream;
+
+    private final long fromMillis;
+
+    private final long toMillis;
+
+    private byte[] line = new byte[256];
+
+    private int lineLength;
+
+    private boolean matching;
+
+    private final byte[] cachedPrefix = new byte[TIMESTAMP_PREFIX_LENGTH];
+
+    private long cachedSecond = Long.MIN_VALUE;
+
+    /**
+     * Usage: <code>TimeRangeQuery &lt;log file&gt; &lt;from&gt; &lt;to&gt;</code>, with the window bounds given as
+     * ISO-8601 instants such as <code>2024-05-01T10:15:00Z</code>. The events are written to the standard output.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 3) {
+            System.err.println("Usage: TimeRangeQuery <log file> <from> <to>");
+            System.exit(1);
+        }
+
+        final var outputStream = new BufferedOutputStream(System.out, BUFFER_SIZE);
+        query(
+                Paths.get(args[0]),
+                Instant.parse(args[1]).toEpochMilli(),
+                Instant.parse(args[2]).toEpochMilli(),
+                outputStream
+        );
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the events of the log file with timestamps in <code>[fromMillis, toMillis)</code> to the output stream
+     * as they are in the file, lines of the text and stack traces included.
+     */
+    public static void query(@Nonnull Path logPath, long fromMillis, long toMillis, @Nonnull OutputStream outputStream)
+            throws IOException {
+
+        try (var channel = FileChannel.open(logPath, READ)) {
+            var start = 0L;
+            var end = channel.size();
+
+            final var indexPath = TimestampIndexWriter.indexPath(logPath);
+            if (Files.exists(indexPath)) {
+                final var index = mapIndex(indexPath);
+                final var count = index.capacity() / ENTRY_SIZE;
+                if (count != 0) {
+                    // the last block runs up to the unindexed tail, so it is read when no later block matches
+                    final var first = Math.min(findFirst(index, count, fromMillis), count - 1);
+                    start = index.getLong(first * ENTRY_SIZE);
+                    // the least timestamps are not ordered, so the blocks past the window are found from the end
+                    for (int i = count - 1; i > first; i--) {
+                        if (index.getLong(i * ENTRY_SIZE + 16) < toMillis) {
+                            break;
+                        }
+                        end = index.getLong(i * ENTRY_SIZE);
+                    }
+                }
+            }
+
+            InputStream inputStream = new RangeInputStream(channel, start, end);
+            if (logPath.getFileName().toString().endsWith(".gz")) {
+                inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
+            }
+            new TimeRangeQuery(outputStream, fromMillis, toMillis).read(inputStream);
+        }
+    }
+
+    private TimeRangeQuery(@Nonnull OutputStream outputStream, long fromMillis, long toMillis) {
+        this.outputStream = outputStream;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    /**
+     * @return the first index entry with the greatest timestamp so far not less than the value, or the number of
+     * entries if there is none
+     */
+    private static int findFirst(@Nonnull MappedByteBuffer index, int count, long value) {
+
+        var low = 0;
+        var high = count - 1;
+        while (low <= high) {
+            final var middle = (low + high) >>> 1;
+            if (index.getLong(middle * ENTRY_SIZE + 24) < value) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    @Nonnull
+    private static MappedByteBuffer mapIndex(@Nonnull Path indexPath) throws IOException {
+
+        try (var channel = FileChannel.open(indexPath, READ)) {
+            // an entry being appended is left out
+            return channel.map(READ_ONLY, 0, channel.size() / ENTRY_SIZE * ENTRY_SIZE);
+        }
+    }
+
+    private void read(@Nonnull InputStream inputStream) throws IOException {
+
+        final var bytes = new byte[BUFFER_SIZE];
+        while (true) {
+            final int read;
+            try {
+                read = inputStream.read(bytes);
+            } catch (EOFException | ZipException e) {
+                // an unfinished compressed block
+                break;
+            }
+            if (read == -1) {
+                break;
+            }
+
+            var lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    appendLine(bytes, lineStart, i + 1);
+                    endLine();
+                    lineStart = i + 1;
+                }
+            }
+            appendLine(bytes, lineStart, read);
+        }
+        endLine();
+    }
+
+    private void appendLine(@Nonnull byte[] bytes, int start, int end) {
+
+        final var length = end - start;
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(bytes, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * Writes the line out if it belongs to an event of the window. Lines that do not start with a timestamp are
+     * continuations of the event before them.
+     */
+    private void endLine() throws IOException {
+
+        if (lineLength != 0) {
+            final var timestampMillis = parseTimestamp();
+            if (timestampMillis != Long.MIN_VALUE) {
+                matching = timestampMillis >= fromMillis && timestampMillis < toMillis;
+            }
+            if (matching) {
+                outputStream.write(line, 0, lineLength);
+            }
+            lineLength = 0;
+        }
+    }
+
+    /**
+     * @return timestamp of the event the line starts, or {@link Long#MIN_VALUE} if the line does not start one
+     */
+    private long parseTimestamp() {
+
+        final var b = line;
+        if (lineLength < TIMESTAMP_PREFIX_LENGTH + 4 || b[0] != '[' || b[11] != 'T' || b[20] != '.') {
+            return Long.MIN_VALUE;
+        }
+
+        if (!Arrays.equals(b, 0, TIMESTAMP_PREFIX_LENGTH, cachedPrefix, 0, TIMESTAMP_PREFIX_LENGTH)) {
+            final var year = parseDigits(1, 4);
+            final var month = parseDigits(6, 2);
+            final var day = parseDigits(9, 2);
+            final var hour = parseDigits(12, 2);
+            final var minute = parseDigits(15, 2);
+            final var second = parseDigits(18, 2);
+            if ((year | month | day | hour | minute | second) < 0
+                || b[5] != '-' || b[8] != '-' || b[14] != ':' || b[17] != ':') {
+                return Long.MIN_VALUE;
+            }
+            try {
+                cachedSecond = LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(UTC);
+            } catch (RuntimeException e) {
+                return Long.MIN_VALUE;
+            }
+            System.arraycopy(b, 0, cachedPrefix, 0, TIMESTAMP_PREFIX_LENGTH);
+        }
+
+        final var millis = parseDigits(TIMESTAMP_PREFIX_LENGTH, 3);
+        if (millis < 0) {
+            return Long.MIN_VALUE;
+        }
+        return cachedSecond * 1000 + millis;
+    }
+
+    /**
+     * Reads a range of the file.
+     */
+    private static final class RangeInputStream extends InputStream {
+
+        @Nonnull
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long position;
+
+        RangeInputStream(@Nonnull FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            final var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+
+            if (position >= end) {
+                return -1;
+            }
+            final var read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        /**
+         * The gzip decoder looks for the next compressed stream only when this is not zero.
+         */
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return the number, or <code>-1</code> if there is a non-digit
+     */
+    private int parseDigits(int offset, int length) {
+
+        var value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final var digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
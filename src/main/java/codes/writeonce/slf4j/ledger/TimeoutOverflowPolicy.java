@@ -0,0 +1,23 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+final class TimeoutOverflowPolicy implements OverflowPolicy {
+
+    private final long timeoutNanos;
+
+    TimeoutOverflowPolicy(long timeout, @Nonnull TimeUnit timeoutUnits) {
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.timeoutNanos = timeoutUnits.toNanos(timeout);
+    }
+
+    @Override
+    public long claim(@Nonnull Sequencer sequencer, @Nonnull Level level) {
+        return sequencer.tryNext(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,179 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes the side index of a log file: the file is cut into blocks of about {@link #blockSize} bytes at event
+ * boundaries, and every finished block gets an entry of {@link #ENTRY_SIZE} bytes with the offsets of its first byte
+ * and of the byte after it, the least timestamp in milliseconds of its events and the greatest timestamp of its events
+ * and of all the blocks before it. The last timestamps are non-decreasing, so that the blocks a time window starts at
+ * can be binary-searched.
+ * <p>
+ * The entry of a block is written when the next block is started, the block is ended explicitly or the index is
+ * closed, so an index left by a crash may not cover the tail of the file. That tail is taken into the first block once
+ * the index is reopened.
+ */
+final class TimestampIndexWriter {
+
+    static final int ENTRY_SIZE = 32;
+
+    static final String SUFFIX = ".index";
+
+    @Nonnull
+    private final FileChannel channel;
+
+    private final int blockSize;
+
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+    private long blockStart = -1;
+
+    private long minTimestampMillis;
+
+    private long maxTimestampMillis = Long.MIN_VALUE;
+
+    /**
+     * Opens the index of the log file for appending, carrying on from the entries already written.
+     *
+     * @param logSize size of the log file the events are appended to
+     */
+    TimestampIndexWriter(@Nonnull Path logPath, int blockSize, long logSize) {
+
+        this.blockSize = blockSize;
+
+        try {
+            channel = FileChannel.open(indexPath(logPath), CREATE, READ, WRITE);
+            try {
+                final var size = channel.size() / ENTRY_SIZE * ENTRY_SIZE;
+                var indexedSize = 0L;
+                if (size != 0) {
+                    readEntry(channel, size - ENTRY_SIZE, entry);
+                    indexedSize = entry.getLong(8);
+                    maxTimestampMillis = entry.getLong(24);
+                }
+                if (indexedSize < logSize) {
+                    // the events written after the last indexed block, whose timestamps are not known
+                    blockStart = indexedSize;
+                    minTimestampMillis = Long.MIN_VALUE;
+                }
+                channel.position(size);
+            } catch (Throwable e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Accounts for the event starting at the position of the log file. Events given the same position as the
+     * previous one are taken into its block regardless of the block size.
+     */
+    void next(long position, long timestampMillis) {
+
+        if (blockStart == -1) {
+            blockStart = position;
+            minTimestampMillis = timestampMillis;
+        } else if (position - blockStart >= blockSize) {
+            writeEntry(position);
+            blockStart = position;
+            minTimestampMillis = timestampMillis;
+        } else if (timestampMillis < minTimestampMillis) {
+            minTimestampMillis = timestampMillis;
+        }
+
+        if (timestampMillis > maxTimestampMillis) {
+            maxTimestampMillis = timestampMillis;
+        }
+    }
+
+    /**
+     * Writes the entry of the current block, which ends at the position, so that the next event starts a new block.
+     */
+    void endBlock(long position) {
+
+        if (blockStart != -1 && position > blockStart) {
+            writeEntry(position);
+            blockStart = -1;
+        }
+    }
+
+    /**
+     * Writes the entry of the last block, which ends at the position, and closes the index.
+     */
+    void close(long position) {
+
+        try (channel) {
+            if (blockStart != -1) {
+                writeEntry(position);
+                blockStart = -1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Nonnull
+    static Path indexPath(@Nonnull Path logPath) {
+        return logPath.resolveSibling(logPath.getFileName() + SUFFIX);
+    }
+
+    /**
+     * @return offset of the end of the last indexed block of the log file, <code>0</code> if no block is indexed, or
+     * <code>-1</code> if the file has no index
+     */
+    static long indexedSize(@Nonnull Path logPath) throws IOException {
+
+        final var indexPath = indexPath(logPath);
+        if (!Files.exists(indexPath)) {
+            return -1;
+        }
+
+        try (var channel = FileChannel.open(indexPath, READ)) {
+            final var size = channel.size() / ENTRY_SIZE * ENTRY_SIZE;
+            if (size == 0) {
+                return 0;
+            }
+            final var entry = ByteBuffer.allocate(ENTRY_SIZE);
+            readEntry(channel, size - ENTRY_SIZE, entry);
+            return entry.getLong(8);
+        }
+    }
+
+    private static void readEntry(@Nonnull FileChannel channel, long position, @Nonnull ByteBuffer entry)
+            throws IOException {
+
+        while (entry.hasRemaining()) {
+            channel.read(entry, position + entry.position());
+        }
+    }
+
+    private void writeEntry(long blockEnd) {
+
+        entry.clear();
+        entry.putLong(blockStart);
+        entry.putLong(blockEnd);
+        entry.putLong(minTimestampMillis);
+        entry.putLong(maxTimestampMillis);
+        entry.flip();
+
+        try {
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
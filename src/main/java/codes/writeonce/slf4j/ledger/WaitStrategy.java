@@ -0,0 +1,16 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+
+interface WaitStrategy {
+
+    /**
+     * Blocks until <code>sequence</code> reaches <code>value</code>.
+     */
+    void await(@Nonnull Sequence sequence, long value);
+
+    /**
+     * Must be called after <code>sequence</code> has been advanced to <code>value</code>.
+     */
+    void signal(long value);
+}
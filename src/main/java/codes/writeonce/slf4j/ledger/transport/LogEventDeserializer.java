@@ -6,10 +6,13 @@ import codes.writeonce.slf4j.ledger.transport.deserializer.ByteDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.CompactingStringDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.Deserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.DeserializerContext;
+import codes.writeonce.slf4j.ledger.transport.deserializer.DictionaryStringDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.IntDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.LongDeserializer;
+import codes.writeonce.slf4j.ledger.transport.deserializer.MapDeltaDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.MapDeserializer;
 import codes.writeonce.slf4j.ledger.transport.deserializer.StringDeserializer;
+import codes.writeonce.slf4j.ledger.transport.deserializer.ThrowableDeserializer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -20,6 +23,7 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 final class LogEventDeserializer implements Deserializer {
 
@@ -46,6 +50,18 @@ final class LogEventDeserializer implements Deserializer {
     @Nonnull
     private final MapDeserializer mapDeserializer;
 
+    @Nonnull
+    private final MapDeltaDeserializer mapDeltaDeserializer;
+
+    @Nonnull
+    private final DictionaryStringDeserializer dictionaryDeserializer;
+
+    @Nonnull
+    private final DictionaryStringDeserializer threadNameDeserializer;
+
+    @Nonnull
+    private final ThrowableDeserializer throwableDeserializer;
+
     private final CharsetDecoder charsetDecoder = StandardCharsets.UTF_8.newDecoder();
 
     private final char[] charArray = new char[CHAR_BUFFER_SIZE];
@@ -54,24 +70,36 @@ final class LogEventDeserializer implements Deserializer {
 
     private final ByteBuffer emptyByteBuffer = ByteBuffer.allocate(0);
 
+    /**
+     * The bytes of a character that is split between two buffers.
+     */
+    private final ByteBuffer splitCharacter = ByteBuffer.allocate(4);
+
     private int state;
 
     private boolean hasThreadName;
 
-    private boolean hasThrowableString;
+    private boolean hasThrowable;
+
+    private boolean mdcDelta;
 
-    private long timestampMillis;
+    private long timestamp;
+
+    @Nonnull
+    private TimeUnit timestampPrecision = TimeUnit.MILLISECONDS;
 
     @Nonnull
     private Level level = Level.TRACE;
 
+    private String loggerName;
+
     private Map<String, String> mdc;
 
     @Nullable
     private String threadName;
 
     @Nullable
-    private String throwableString;
+    private Throwable throwable;
 
     private int remained;
 
@@ -85,20 +113,32 @@ final class LogEventDeserializer implements Deserializer {
         longDeserializer = new LongDeserializer();
         stringDeserializer = new CompactingStringDeserializer(context, intDeserializer);
         mapDeserializer = new MapDeserializer(intDeserializer, stringDeserializer);
+        dictionaryDeserializer = new DictionaryStringDeserializer(intDeserializer, stringDeserializer);
+        threadNameDeserializer = new DictionaryStringDeserializer(intDeserializer, stringDeserializer);
+        mapDeltaDeserializer = new MapDeltaDeserializer(byteDeserializer, intDeserializer, stringDeserializer,
+                new DictionaryStringDeserializer(intDeserializer, stringDeserializer));
+        throwableDeserializer = new ThrowableDeserializer(byteDeserializer, intDeserializer, stringDeserializer,
+                dictionaryDeserializer);
     }
 
     @Override
     public void reset() {
 
+        throwableDeserializer.reset();
+        threadNameDeserializer.reset();
+        dictionaryDeserializer.reset();
+        mapDeltaDeserializer.reset();
         mapDeserializer.reset();
         stringDeserializer.reset();
         intDeserializer.reset();
         longDeserializer.reset();
         byteDeserializer.reset();
+        splitCharacter.clear();
         state = 0;
+        loggerName = null;
         mdc = null;
         threadName = null;
-        throwableString = null;
+        throwable = null;
     }
 
     @Override
@@ -115,9 +155,21 @@ final class LogEventDeserializer implements Deserializer {
                     }
                 case 1:
                     final var byteValue = byteDeserializer.byteValue();
+                    if (byteValue == LogEventSerializer.DICTIONARY_RESET) {
+                        clearDictionaries();
+                        state = 0;
+                        break;
+                    }
                     level = Level.values()[byteValue & 7];
                     hasThreadName = (byteValue & 8) != 0;
-                    hasThrowableString = (byteValue & 0x10) != 0;
+                    hasThrowable = (byteValue & 0x10) != 0;
+                    timestampPrecision = switch ((byteValue >> 5) & 3) {
+                        case 0 -> TimeUnit.MILLISECONDS;
+                        case 1 -> TimeUnit.MICROSECONDS;
+                        case 2 -> TimeUnit.NANOSECONDS;
+                        default -> throw new IllegalArgumentException();
+                    };
+                    mdcDelta = (byteValue & 0x80) != 0;
                     remaining = longDeserializer.consume(byteBuffer, remaining);
                     if (remaining == -1) {
                         context.push(longDeserializer);
@@ -125,19 +177,19 @@ final class LogEventDeserializer implements Deserializer {
                         return remaining;
                     }
                 case 2:
-                    timestampMillis = longDeserializer.longValue();
-                    remaining = mapDeserializer.consume(byteBuffer, remaining);
+                    timestamp = longDeserializer.longValue();
+                    remaining = dictionaryDeserializer.consume(byteBuffer, remaining);
                     if (remaining == -1) {
-                        context.push(mapDeserializer);
+                        context.push(dictionaryDeserializer);
                         state = 3;
                         return remaining;
                     }
                 case 3:
-                    mdc = mapDeserializer.value();
+                    loggerName = dictionaryDeserializer.value();
                     if (hasThreadName) {
-                        remaining = stringDeserializer.consume(byteBuffer, remaining);
+                        remaining = threadNameDeserializer.consume(byteBuffer, remaining);
                         if (remaining == -1) {
-                            context.push(stringDeserializer);
+                            context.push(threadNameDeserializer);
                             state = 4;
                             return remaining;
                         }
@@ -147,35 +199,53 @@ final class LogEventDeserializer implements Deserializer {
                         break;
                     }
                 case 4:
-                    threadName = stringDeserializer.value();
-                case 5:
-                    if (hasThrowableString) {
-                        remaining = stringDeserializer.consume(byteBuffer, remaining);
+                    threadName = threadNameDeserializer.value();
+                case 5: {
+                    final Deserializer deserializer;
+                    if (mdcDelta) {
+                        mapDeltaDeserializer.threadName(threadName);
+                        deserializer = mapDeltaDeserializer;
+                    } else {
+                        deserializer = mapDeserializer;
+                    }
+                    remaining = deserializer.consume(byteBuffer, remaining);
+                    if (remaining == -1) {
+                        context.push(deserializer);
+                        state = 6;
+                        return remaining;
+                    }
+                }
+                case 6:
+                    mdc = mdcDelta ? mapDeltaDeserializer.value() : mapDeserializer.value();
+                    if (hasThrowable) {
+                        remaining = throwableDeserializer.consume(byteBuffer, remaining);
                         if (remaining == -1) {
-                            context.push(stringDeserializer);
-                            state = 6;
+                            context.push(throwableDeserializer);
+                            state = 7;
                             return remaining;
                         }
                     } else {
-                        throwableString = null;
-                        state = 7;
+                        throwable = null;
+                        state = 8;
                         break;
                     }
-                case 6:
-                    throwableString = stringDeserializer.value();
                 case 7:
+                    throwable = throwableDeserializer.value();
+                case 8:
                     remaining = intDeserializer.consume(byteBuffer, remaining);
                     if (remaining == -1) {
                         context.push(intDeserializer);
-                        state = 8;
+                        state = 9;
                         return remaining;
                     }
-                case 8:
+                case 9:
                     final var textSize = intDeserializer.intValue();
-                    publisher.next(textSize, timestampMillis, level, mdc, threadName, throwableString);
+                    publisher.next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName,
+                            throwable);
+                    loggerName = null;
                     mdc = null;
                     threadName = null;
-                    throwableString = null;
+                    throwable = null;
                     if (textSize == 0) {
                         state = 0;
                         return remaining;
@@ -184,38 +254,71 @@ final class LogEventDeserializer implements Deserializer {
                     remained = textSize;
                     charBuffer.position(0);
                     charBuffer.limit(Math.min(remained, CHAR_BUFFER_SIZE));
-                case 9:
-                    while (true) {
-                        final var result = charsetDecoder.decode(byteBuffer, charBuffer, false);
-                        if (!charBuffer.hasRemaining()) {
-                            final var length = charBuffer.position();
-                            final var last = remained == length;
-                            if (last) {
-                                ensureUnderflow(charsetDecoder.decode(emptyByteBuffer, charBuffer, true));
-                                ensureUnderflow(charsetDecoder.flush(charBuffer));
-                                charBuffer.flip();
-                                publisher.chunk(last, charBuffer);
-                                state = 0;
-                                return byteBuffer.remaining();
-                            } else {
-                                charBuffer.flip();
-                                publisher.chunk(last, charBuffer);
-                                remained -= length;
-                                charBuffer.position(0);
-                                charBuffer.limit(Math.min(remained, CHAR_BUFFER_SIZE));
-                            }
-                        } else {
-                            ensureUnderflow(result);
-                            state = 9;
+                case 10:
+                    while (splitCharacter.position() != 0) {
+                        if (!byteBuffer.hasRemaining()) {
+                            state = 10;
                             return -1;
                         }
+                        splitCharacter.put(byteBuffer.get());
+                        splitCharacter.flip();
+                        final var completed = decodeText(splitCharacter);
+                        splitCharacter.compact();
+                        if (completed) {
+                            state = 0;
+                            return byteBuffer.remaining();
+                        }
                     }
+                    if (decodeText(byteBuffer)) {
+                        state = 0;
+                        return byteBuffer.remaining();
+                    }
+                    splitCharacter.put(byteBuffer);
+                    state = 10;
+                    return -1;
                 default:
                     throw new IllegalStateException();
             }
         }
     }
 
+    private void clearDictionaries() {
+        dictionaryDeserializer.clearDictionary();
+        threadNameDeserializer.clearDictionary();
+        mapDeltaDeserializer.clearDictionary();
+        throwableDeserializer.clearDictionary();
+    }
+
+    /**
+     * @return <code>true</code> if the whole text has been read
+     */
+    private boolean decodeText(@Nonnull ByteBuffer byteBuffer) {
+
+        while (true) {
+            final var result = charsetDecoder.decode(byteBuffer, charBuffer, false);
+            // a surrogate pair does not fit when the buffer has room for a single character only
+            if (result.isOverflow() || !charBuffer.hasRemaining()) {
+                final var length = charBuffer.position();
+                final var last = remained == length;
+                if (last) {
+                    ensureUnderflow(charsetDecoder.decode(emptyByteBuffer, charBuffer, true));
+                    ensureUnderflow(charsetDecoder.flush(charBuffer));
+                    charBuffer.flip();
+                    publisher.chunk(true, charBuffer);
+                    return true;
+                }
+                charBuffer.flip();
+                publisher.chunk(false, charBuffer);
+                remained -= length;
+                charBuffer.position(0);
+                charBuffer.limit(Math.min(remained, CHAR_BUFFER_SIZE));
+            } else {
+                ensureUnderflow(result);
+                return false;
+            }
+        }
+    }
+
     private void ensureUnderflow(@Nonnull CoderResult result) {
 
         if (!result.isUnderflow()) {
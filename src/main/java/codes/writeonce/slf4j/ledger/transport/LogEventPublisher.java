@@ -11,6 +11,7 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
@@ -21,7 +22,11 @@ public final class LogEventPublisher implements Publisher {
     @Nonnull
     private final ChunkWriter chunkWriter;
 
-    private final LogEventSerializer rootSerializer;
+    private final boolean mdcDelta;
+
+    private final int dictionaryLimit;
+
+    private LogEventSerializer rootSerializer;
 
     private Serializer serializer;
 
@@ -30,26 +35,49 @@ public final class LogEventPublisher implements Publisher {
     private ByteBuffer byteBuffer;
 
     public LogEventPublisher(@Nonnull ChunkWriter chunkWriter) {
+        this(chunkWriter, false);
+    }
+
+    /**
+     * @param mdcDelta whether to send every MDC as the changes against the previous MDC of the same thread
+     */
+    public LogEventPublisher(@Nonnull ChunkWriter chunkWriter, boolean mdcDelta) {
+        this(chunkWriter, mdcDelta, LogEventSerializer.DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    /**
+     * @param mdcDelta        whether to send every MDC as the changes against the previous MDC of the same thread
+     * @param dictionaryLimit number of strings, stack frames and previous MDCs the dictionaries are cleared at
+     */
+    public LogEventPublisher(@Nonnull ChunkWriter chunkWriter, boolean mdcDelta, int dictionaryLimit) {
 
         this.chunkWriter = chunkWriter;
-        rootSerializer = new LogEventSerializer(this::push);
+        this.mdcDelta = mdcDelta;
+        this.dictionaryLimit = dictionaryLimit;
+        rootSerializer = new LogEventSerializer(this::push, mdcDelta, dictionaryLimit);
         serializer = rootSerializer;
     }
 
     @Override
     public void next(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     ) {
         try {
             sequence++;
-            chunkWriter.sequence(sequence);
+            if (chunkWriter.sequence(sequence, timestampPrecision.toMillis(timestamp), level, mdc)) {
+                // dictionaries and previous MDCs start over, so that the event can be read without those before it
+                rootSerializer = new LogEventSerializer(this::push, mdcDelta, dictionaryLimit);
+                serializer = rootSerializer;
+            }
 
-            rootSerializer.init(textSize, timestampMillis, level, mdc, threadName, throwableString);
+            rootSerializer.init(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
 
             var byteBuffer = chunkWriter.chunk();
             var remaining = byteBuffer.remaining();
@@ -71,8 +99,12 @@ public final class LogEventPublisher implements Publisher {
                 }
             }
         } catch (InterruptedException e) {
+            abort(e);
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } catch (Throwable e) {
+            abort(e);
+            throw e;
         }
     }
 
@@ -91,9 +123,7 @@ public final class LogEventPublisher implements Publisher {
                 } else {
                     if (stack.isEmpty()) {
                         if (last) {
-                            if (remaining != 0) {
-                                throw new IllegalStateException();
-                            }
+                            // the rest of the buffer is left to the chunk writer for the next event
                             this.byteBuffer = null;
                         }
                         return;
@@ -101,12 +131,52 @@ public final class LogEventPublisher implements Publisher {
                     pop();
                 }
             }
+        } catch (InterruptedException e) {
+            abort(e);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (Throwable e) {
+            abort(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void endOfBatch() {
+
+        try {
+            chunkWriter.endOfBatch();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void close() {
+        chunkWriter.close();
+    }
+
+    /**
+     * Drops the event that has failed partway, so that the next one is written from a clean state: the serializers
+     * are started afresh, and with them the dictionaries, which the event may have added to, and the chunk writer
+     * drops the frames of the event and starts the next one as an index point. The next event also starts with a
+     * dictionary reset, which keeps the receiving side in step should the chunk writer fail to do so.
+     */
+    private void abort(@Nonnull Throwable cause) {
+
+        stack.clear();
+        rootSerializer = new LogEventSerializer(this::push, mdcDelta, dictionaryLimit);
+        rootSerializer.resetDictionaries();
+        serializer = rootSerializer;
+        byteBuffer = null;
+        try {
+            chunkWriter.abort();
+        } catch (Throwable e) {
+            cause.addSuppressed(e);
+        }
+    }
+
     private void push(@Nonnull Serializer serializer) {
 
         requireNonNull(serializer);
@@ -1,12 +1,17 @@
 package codes.writeonce.slf4j.ledger.transport;
 
+import codes.writeonce.slf4j.ledger.Level;
 import codes.writeonce.slf4j.ledger.Publisher;
 import codes.writeonce.slf4j.ledger.Receiver;
 import codes.writeonce.slf4j.ledger.transport.deserializer.Deserializer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
@@ -14,15 +19,52 @@ public final class LogEventReceiver implements Receiver {
 
     private final ArrayList<Deserializer> stack = new ArrayList<>();
 
+    @Nonnull
+    private final Publisher publisher;
+
+    private final long firstSequence;
+
+    private final long firstTimestampMillis;
+
+    private boolean skipping;
+
     private Deserializer deserializer;
 
     public LogEventReceiver(@Nonnull Publisher publisher) {
-        deserializer = new LogEventDeserializer(this::push, publisher);
+        this(publisher, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param firstSequence events with lower sequences are read, since the events after them may refer to their
+     *                      strings, but are not published
+     */
+    public LogEventReceiver(@Nonnull Publisher publisher, long firstSequence) {
+        this(publisher, firstSequence, Long.MIN_VALUE);
+    }
+
+    /**
+     * The timestamp bound is meant for {@link codes.writeonce.slf4j.ledger.JournalReader#replayFromTimestamp}, which
+     * starts from an index point and so passes up to an index interval of earlier events too.
+     *
+     * @param firstSequence        events with lower sequences are read, since the events after them may refer to their
+     *                             strings, but are not published
+     * @param firstTimestampMillis events with earlier timestamps are read but not published
+     */
+    public LogEventReceiver(@Nonnull Publisher publisher, long firstSequence, long firstTimestampMillis) {
+
+        this.publisher = firstSequence == Long.MIN_VALUE && firstTimestampMillis == Long.MIN_VALUE
+                ? publisher
+                : new SkippingPublisher(publisher);
+        this.firstSequence = firstSequence;
+        this.firstTimestampMillis = firstTimestampMillis;
+        deserializer = new LogEventDeserializer(this::push, this.publisher);
     }
 
     @Override
     public void next(long sequence, long offset, boolean last, @Nonnull ByteBuffer byteBuffer) {
 
+        skipping = sequence < firstSequence;
+
         var remaining = byteBuffer.remaining();
         while (true) {
             remaining = deserializer.consume(byteBuffer, remaining);
@@ -44,6 +86,13 @@ public final class LogEventReceiver implements Receiver {
         }
     }
 
+    @Override
+    public void reset() {
+
+        stack.clear();
+        deserializer = new LogEventDeserializer(this::push, publisher);
+    }
+
     private void push(@Nonnull Deserializer deserializer) {
 
         requireNonNull(deserializer);
@@ -54,4 +103,51 @@ public final class LogEventReceiver implements Receiver {
     private void pop() {
         this.deserializer = stack.remove(stack.size() - 1);
     }
+
+    private final class SkippingPublisher implements Publisher {
+
+        @Nonnull
+        private final Publisher publisher;
+
+        private boolean skippingEvent;
+
+        SkippingPublisher(@Nonnull Publisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void next(
+                int textSize,
+                long timestamp,
+                @Nonnull TimeUnit timestampPrecision,
+                @Nonnull Level level,
+                @Nonnull String loggerName,
+                @Nullable Map<String, String> mdc,
+                @Nullable String threadName,
+                @Nullable Throwable throwable
+        ) {
+            skippingEvent = skipping || timestampPrecision.toMillis(timestamp) < firstTimestampMillis;
+            if (!skippingEvent) {
+                publisher.next(textSize, timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
+            }
+        }
+
+        @Override
+        public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
+
+            if (!skippingEvent) {
+                publisher.chunk(last, charBuffer);
+            }
+        }
+
+        @Override
+        public void endOfBatch() {
+            publisher.endOfBatch();
+        }
+
+        @Override
+        public void close() {
+            publisher.close();
+        }
+    }
 }
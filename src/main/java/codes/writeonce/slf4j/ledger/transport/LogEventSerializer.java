@@ -3,12 +3,15 @@ package codes.writeonce.slf4j.ledger.transport;
 import codes.writeonce.slf4j.ledger.Level;
 import codes.writeonce.slf4j.ledger.transport.serializer.ByteSerializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.CompactingStringSerializer;
+import codes.writeonce.slf4j.ledger.transport.serializer.DictionaryStringSerializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.IntSerializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.LongSerializer;
+import codes.writeonce.slf4j.ledger.transport.serializer.MapDeltaSerializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.MapSerializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.Serializer;
 import codes.writeonce.slf4j.ledger.transport.serializer.SerializerContext;
 import codes.writeonce.slf4j.ledger.transport.serializer.StringSerializer;
+import codes.writeonce.slf4j.ledger.transport.serializer.ThrowableSerializer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -20,9 +23,21 @@ import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public final class LogEventSerializer implements Serializer {
 
+    /**
+     * Number of strings, stack frames and previous MDCs the dictionaries of a stream are cleared at by default.
+     */
+    public static final int DEFAULT_DICTIONARY_LIMIT = 64 * 1024;
+
+    /**
+     * Written in place of the flags byte, with a level no event has, before an event the dictionaries have been
+     * cleared for.
+     */
+    static final byte DICTIONARY_RESET = 7;
+
     @Nonnull
     private final SerializerContext context;
 
@@ -41,16 +56,41 @@ public final class LogEventSerializer implements Serializer {
     @Nonnull
     private final MapSerializer mapSerializer;
 
+    @Nonnull
+    private final MapDeltaSerializer mapDeltaSerializer;
+
+    @Nonnull
+    private final DictionaryStringSerializer dictionarySerializer;
+
+    @Nonnull
+    private final DictionaryStringSerializer threadNameSerializer;
+
+    @Nonnull
+    private final ThrowableSerializer throwableSerializer;
+
+    private final boolean mdcDelta;
+
+    private final int dictionaryLimit;
+
     private final CharsetEncoder charsetEncoder = StandardCharsets.UTF_8.newEncoder();
 
     private int state;
 
+    private boolean dictionaryReset;
+
     private int textSize;
 
-    private long timestampMillis;
+    private long timestamp;
+
+    /**
+     * Timestamp precision as stored in bits 5 and 6 of the flags byte.
+     */
+    private int precisionFlags;
 
     private Level level;
 
+    private String loggerName;
+
     @Nullable
     private Map<String, String> mdc;
 
@@ -58,7 +98,7 @@ public final class LogEventSerializer implements Serializer {
     private String threadName;
 
     @Nullable
-    private String throwableString;
+    private Throwable throwable;
 
     private int remained;
 
@@ -66,29 +106,55 @@ public final class LogEventSerializer implements Serializer {
 
     private boolean last;
 
-    public LogEventSerializer(@Nonnull SerializerContext context) {
+    public LogEventSerializer(@Nonnull SerializerContext context, boolean mdcDelta) {
+        this(context, mdcDelta, DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    /**
+     * @param mdcDelta        whether to write every MDC as the changes against the previous MDC of the same thread
+     * @param dictionaryLimit number of strings, stack frames and previous MDCs the dictionaries are cleared at before
+     *                        the next event, so that they stay bounded on a long-lived stream
+     */
+    public LogEventSerializer(@Nonnull SerializerContext context, boolean mdcDelta, int dictionaryLimit) {
+
+        if (dictionaryLimit < 1) {
+            throw new IllegalArgumentException();
+        }
 
         this.context = context;
+        this.mdcDelta = mdcDelta;
+        this.dictionaryLimit = dictionaryLimit;
 
         intSerializer = new IntSerializer();
         longSerializer = new LongSerializer();
         stringSerializer = new CompactingStringSerializer(intSerializer);
         byteSerializer = new ByteSerializer();
         mapSerializer = new MapSerializer(intSerializer, stringSerializer);
+        dictionarySerializer = new DictionaryStringSerializer(intSerializer, stringSerializer);
+        threadNameSerializer = new DictionaryStringSerializer(intSerializer, stringSerializer);
+        mapDeltaSerializer = new MapDeltaSerializer(byteSerializer, intSerializer, stringSerializer,
+                new DictionaryStringSerializer(intSerializer, stringSerializer));
+        throwableSerializer =
+                new ThrowableSerializer(byteSerializer, intSerializer, stringSerializer, dictionarySerializer);
     }
 
     @Override
     public void reset() {
 
+        throwableSerializer.reset();
+        threadNameSerializer.reset();
+        dictionarySerializer.reset();
+        mapDeltaSerializer.reset();
         mapSerializer.reset();
         stringSerializer.reset();
         intSerializer.reset();
         longSerializer.reset();
         byteSerializer.reset();
         state = 0;
+        loggerName = null;
         mdc = null;
         threadName = null;
-        throwableString = null;
+        throwable = null;
         charBuffer = null;
     }
 
@@ -97,13 +163,28 @@ public final class LogEventSerializer implements Serializer {
 
         switch (state) {
             case 0:
+                if (dictionaryReset) {
+                    dictionaryReset = false;
+                    byteSerializer.value(DICTIONARY_RESET);
+                    remaining = byteSerializer.consume(byteBuffer, remaining);
+                    if (remaining == -1) {
+                        context.push(byteSerializer);
+                        state = 11;
+                        return remaining;
+                    }
+                }
+            case 11:
                 byte byteValue = (byte) level.ordinal();
                 if (threadName != null) {
                     byteValue |= 8;
                 }
-                if (throwableString != null) {
+                if (throwable != null) {
                     byteValue |= 0x10;
                 }
+                byteValue |= precisionFlags;
+                if (mdcDelta) {
+                    byteValue |= 0x80;
+                }
                 byteSerializer.value(byteValue);
                 remaining = byteSerializer.consume(byteBuffer, remaining);
                 if (remaining == -1) {
@@ -112,7 +193,7 @@ public final class LogEventSerializer implements Serializer {
                     return remaining;
                 }
             case 1:
-                longSerializer.value(timestampMillis);
+                longSerializer.value(timestamp);
                 remaining = longSerializer.consume(byteBuffer, remaining);
                 if (remaining == -1) {
                     context.push(longSerializer);
@@ -120,54 +201,72 @@ public final class LogEventSerializer implements Serializer {
                     return remaining;
                 }
             case 2:
-                mapSerializer.value(mdc == null ? Collections.emptyMap() : mdc);
-                remaining = mapSerializer.consume(byteBuffer, remaining);
+                dictionarySerializer.value(loggerName);
+                remaining = dictionarySerializer.consume(byteBuffer, remaining);
                 if (remaining == -1) {
-                    context.push(mapSerializer);
+                    context.push(dictionarySerializer);
                     state = 3;
                     return remaining;
                 }
             case 3:
-                mdc = null;
+                loggerName = null;
                 if (threadName != null) {
-                    stringSerializer.value(threadName);
-                    remaining = stringSerializer.consume(byteBuffer, remaining);
+                    threadNameSerializer.value(threadName);
+                    remaining = threadNameSerializer.consume(byteBuffer, remaining);
                     if (remaining == -1) {
-                        context.push(stringSerializer);
+                        context.push(threadNameSerializer);
                         state = 4;
                         return remaining;
                     }
                 }
-            case 4:
+            case 4: {
+                final Map<String, String> map = mdc == null ? Collections.emptyMap() : mdc;
+                final Serializer serializer;
+                if (mdcDelta) {
+                    mapDeltaSerializer.value(threadName, map);
+                    serializer = mapDeltaSerializer;
+                } else {
+                    mapSerializer.value(map);
+                    serializer = mapSerializer;
+                }
+                remaining = serializer.consume(byteBuffer, remaining);
+                if (remaining == -1) {
+                    context.push(serializer);
+                    state = 5;
+                    return remaining;
+                }
+            }
+            case 5:
+                mdc = null;
                 threadName = null;
-                if (throwableString != null) {
-                    stringSerializer.value(throwableString);
-                    remaining = stringSerializer.consume(byteBuffer, remaining);
+                if (throwable != null) {
+                    throwableSerializer.value(throwable);
+                    remaining = throwableSerializer.consume(byteBuffer, remaining);
                     if (remaining == -1) {
-                        context.push(stringSerializer);
-                        state = 5;
+                        context.push(throwableSerializer);
+                        state = 6;
                         return remaining;
                     }
                 }
-            case 5:
-                throwableString = null;
+            case 6:
+                throwable = null;
                 intSerializer.value(textSize);
                 remaining = intSerializer.consume(byteBuffer, remaining);
                 if (remaining == -1) {
                     context.push(intSerializer);
-                    state = 6;
+                    state = 7;
                     return remaining;
                 }
-            case 6:
+            case 7:
                 if (textSize == 0) {
                     state = 0;
                     return remaining;
                 }
                 charsetEncoder.reset();
                 remained = textSize;
-                state = 7;
+                state = 8;
                 return remaining;
-            case 8: {
+            case 9: {
                 final var result = charsetEncoder.encode(charBuffer, byteBuffer, last);
                 if (result.isOverflow()) {
                     return -1;
@@ -175,14 +274,14 @@ public final class LogEventSerializer implements Serializer {
                 charBuffer = null;
                 ensureUnderflow(result);
                 if (!last) {
-                    state = 7;
+                    state = 8;
                     return byteBuffer.remaining();
                 }
             }
-            case 9: {
+            case 10: {
                 final var result = charsetEncoder.flush(byteBuffer);
                 if (result.isOverflow()) {
-                    state = 9;
+                    state = 10;
                     return -1;
                 }
                 ensureUnderflow(result);
@@ -207,26 +306,61 @@ public final class LogEventSerializer implements Serializer {
 
     public void init(
             int textSize,
-            long timestampMillis,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
             @Nonnull Level level,
+            @Nonnull String loggerName,
             @Nullable Map<String, String> mdc,
             @Nullable String threadName,
-            @Nullable String throwableString
+            @Nullable Throwable throwable
     ) {
         if (state != 0) {
             throw new IllegalStateException();
         }
+        if (dictionarySize() >= dictionaryLimit) {
+            resetDictionaries();
+        }
         this.textSize = textSize;
-        this.timestampMillis = timestampMillis;
+        this.timestamp = timestamp;
+        this.precisionFlags = switch (timestampPrecision) {
+            case MILLISECONDS -> 0;
+            case MICROSECONDS -> 0x20;
+            case NANOSECONDS -> 0x40;
+            default -> throw new IllegalArgumentException("Unsupported timestamp precision: " + timestampPrecision);
+        };
         this.level = level;
+        this.loggerName = loggerName;
         this.mdc = mdc;
         this.threadName = threadName;
-        this.throwableString = throwableString;
+        this.throwable = throwable;
+    }
+
+    /**
+     * Clears the dictionaries before the next event, which tells the receiving side to clear its dictionaries too.
+     */
+    public void resetDictionaries() {
+
+        clearDictionaries();
+        dictionaryReset = true;
+    }
+
+    private int dictionarySize() {
+        return dictionarySerializer.dictionarySize()
+               + threadNameSerializer.dictionarySize()
+               + mapDeltaSerializer.dictionarySize()
+               + throwableSerializer.dictionarySize();
+    }
+
+    private void clearDictionaries() {
+        dictionarySerializer.clearDictionary();
+        threadNameSerializer.clearDictionary();
+        mapDeltaSerializer.clearDictionary();
+        throwableSerializer.clearDictionary();
     }
 
     public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
 
-        if (state != 7) {
+        if (state != 8) {
             throw new IllegalStateException();
         }
 
@@ -245,6 +379,6 @@ public final class LogEventSerializer implements Serializer {
         remained -= remaining;
         this.charBuffer = charBuffer;
         this.last = last;
-        state = 8;
+        state = 9;
     }
 }
@@ -0,0 +1,82 @@
+package codes.writeonce.slf4j.ledger.transport.deserializer;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Reads strings written by the <code>DictionaryStringSerializer</code>.
+ */
+public class DictionaryStringDeserializer implements Deserializer {
+
+    @Nonnull
+    private final IntDeserializer intDeserializer;
+
+    @Nonnull
+    private final StringDeserializer stringDeserializer;
+
+    private final ArrayList<String> dictionary = new ArrayList<>();
+
+    private int state;
+
+    private String value;
+
+    public DictionaryStringDeserializer(
+            @Nonnull IntDeserializer intDeserializer,
+            @Nonnull StringDeserializer stringDeserializer
+    ) {
+        this.intDeserializer = intDeserializer;
+        this.stringDeserializer = stringDeserializer;
+    }
+
+    @Override
+    public void reset() {
+
+        intDeserializer.reset();
+        stringDeserializer.reset();
+        state = 0;
+        value = null;
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        switch (state) {
+            case 0:
+                remaining = intDeserializer.consume(byteBuffer, remaining);
+                if (remaining == -1) {
+                    return remaining;
+                }
+                final var index = intDeserializer.intValue();
+                final var size = dictionary.size();
+                if (index < 0 || index > size) {
+                    throw new IllegalArgumentException();
+                }
+                if (index < size) {
+                    value = dictionary.get(index);
+                    return remaining;
+                }
+                state = 1;
+            case 1:
+                remaining = stringDeserializer.consume(byteBuffer, remaining);
+                if (remaining == -1) {
+                    return remaining;
+                }
+                value = stringDeserializer.value();
+                dictionary.add(value);
+                state = 0;
+                return remaining;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    public void clearDictionary() {
+        dictionary.clear();
+    }
+
+    @Nonnull
+    public String value() {
+        return value;
+    }
+}
@@ -0,0 +1,193 @@
+package codes.writeonce.slf4j.ledger.transport.deserializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Reads MDCs written by the <code>MapDeltaSerializer</code> by applying the changes to the previous MDC read for
+ * the same thread name.
+ */
+public class MapDeltaDeserializer implements Deserializer {
+
+    private static final int REMOVED = 0;
+
+    private static final int SET = 1;
+
+    private static final int CHANGE_COUNT = 0;
+
+    private static final int KEY = 1;
+
+    private static final int OPERATION = 2;
+
+    private static final int VALUE = 3;
+
+    @Nonnull
+    private final ByteDeserializer byteDeserializer;
+
+    @Nonnull
+    private final IntDeserializer intDeserializer;
+
+    @Nonnull
+    private final StringDeserializer stringDeserializer;
+
+    @Nonnull
+    private final DictionaryStringDeserializer keyDeserializer;
+
+    private final HashMap<String, Map<String, String>> previousMaps = new HashMap<>();
+
+    private String threadName;
+
+    private int step;
+
+    private Deserializer current;
+
+    private int changeCount;
+
+    private LinkedHashMap<String, String> map;
+
+    private String key;
+
+    private Map<String, String> value = emptyMap();
+
+    public MapDeltaDeserializer(
+            @Nonnull ByteDeserializer byteDeserializer,
+            @Nonnull IntDeserializer intDeserializer,
+            @Nonnull StringDeserializer stringDeserializer,
+            @Nonnull DictionaryStringDeserializer keyDeserializer
+    ) {
+        this.byteDeserializer = byteDeserializer;
+        this.intDeserializer = intDeserializer;
+        this.stringDeserializer = stringDeserializer;
+        this.keyDeserializer = keyDeserializer;
+    }
+
+    @Override
+    public void reset() {
+
+        byteDeserializer.reset();
+        intDeserializer.reset();
+        stringDeserializer.reset();
+        keyDeserializer.reset();
+        step = CHANGE_COUNT;
+        current = null;
+        map = null;
+        key = null;
+        value = emptyMap();
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        while (true) {
+            if (current == null) {
+                current = nextDeserializer();
+            }
+            remaining = current.consume(byteBuffer, remaining);
+            if (remaining == -1) {
+                return remaining;
+            }
+            current = null;
+            if (accept()) {
+                return remaining;
+            }
+        }
+    }
+
+    public void clearDictionary() {
+        previousMaps.clear();
+        keyDeserializer.clearDictionary();
+    }
+
+    /**
+     * Selects the previous MDC the changes that follow apply to.
+     */
+    public void threadName(@Nullable String threadName) {
+        this.threadName = threadName;
+    }
+
+    @Nonnull
+    public Map<String, String> value() {
+        return value;
+    }
+
+    @Nonnull
+    private Deserializer nextDeserializer() {
+
+        switch (step) {
+            case KEY:
+                return keyDeserializer;
+            case OPERATION:
+                return byteDeserializer;
+            case VALUE:
+                return stringDeserializer;
+            default:
+                return intDeserializer;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the whole map has been read
+     */
+    private boolean accept() {
+
+        switch (step) {
+            case CHANGE_COUNT: {
+                changeCount = intDeserializer.intValue();
+                if (changeCount < 0) {
+                    throw new IllegalArgumentException();
+                }
+                final var previous = previousMaps.get(threadName);
+                if (changeCount == 0) {
+                    value = previous == null ? emptyMap() : previous;
+                    return true;
+                }
+                map = previous == null ? new LinkedHashMap<>() : new LinkedHashMap<>(previous);
+                step = KEY;
+                return false;
+            }
+            case KEY:
+                key = keyDeserializer.value();
+                step = OPERATION;
+                return false;
+            case OPERATION:
+                switch (byteDeserializer.byteValue()) {
+                    case REMOVED:
+                        map.remove(key);
+                        return nextChange();
+                    case SET:
+                        step = VALUE;
+                        return false;
+                    default:
+                        throw new IllegalArgumentException();
+                }
+            case VALUE:
+                map.put(key, stringDeserializer.value());
+                return nextChange();
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private boolean nextChange() {
+
+        key = null;
+        changeCount--;
+        if (changeCount != 0) {
+            step = KEY;
+            return false;
+        }
+
+        value = map.isEmpty() ? emptyMap() : unmodifiableMap(map);
+        previousMaps.put(threadName, value);
+        map = null;
+        step = CHANGE_COUNT;
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package codes.writeonce.slf4j.ledger.transport.deserializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Throwable rebuilt from its structured encoding, rendered the same way as the original was on the sending side.
+ */
+public final class ReceivedThrowable extends Throwable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Nonnull
+    private final String className;
+
+    @Nonnull
+    private final String description;
+
+    @Nullable
+    private Throwable cause;
+
+    ReceivedThrowable(
+            @Nonnull String className,
+            @Nullable String message,
+            @Nonnull String description,
+            @Nonnull StackTraceElement[] stackTrace
+    ) {
+        super(message, null, true, true);
+        this.className = className;
+        this.description = description;
+        setStackTrace(stackTrace);
+    }
+
+    /**
+     * @return the name of the class of the original throwable
+     */
+    @Nonnull
+    public String getClassName() {
+        return className;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Throwable getCause() {
+        return cause;
+    }
+
+    void setCause(@Nullable Throwable cause) {
+        this.cause = cause;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -52,8 +52,7 @@ public abstract class StringDeserializer implements Deserializer {
             case 0:
                 remaining = intDeserializer.consume(byteBuffer, remaining);
                 if (remaining == -1) {
-                    context.push(intDeserializer);
-                    state = 3;
+                    // the length is resumed in place, the caller owns the position on the deserializer stack
                     return remaining;
                 }
             case 3:
@@ -0,0 +1,361 @@
+package codes.writeonce.slf4j.ledger.transport.deserializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Reads throwables written by the <code>ThrowableSerializer</code> as {@link ReceivedThrowable}s.
+ */
+public class ThrowableDeserializer implements Deserializer {
+
+    private static final int HAS_MESSAGE = 1;
+
+    private static final int CUSTOM_DESCRIPTION = 2;
+
+    private static final int HAS_FILE_NAME = 1;
+
+    private static final int NODE_COUNT = 0;
+
+    private static final int CLASS_NAME = 1;
+
+    private static final int FLAGS = 2;
+
+    private static final int MESSAGE = 3;
+
+    private static final int FRAME_COUNT = 4;
+
+    private static final int FRAME = 5;
+
+    private static final int FRAME_FLAGS = 6;
+
+    private static final int FRAME_LOCATION = 7;
+
+    private static final int FRAME_CLASS_NAME = 8;
+
+    private static final int FRAME_METHOD_NAME = 9;
+
+    private static final int FRAME_FILE_NAME = 10;
+
+    private static final int FRAME_LINE_NUMBER = 11;
+
+    private static final int SUPPRESSED_COUNT = 12;
+
+    private static final int SUPPRESSED = 13;
+
+    private static final int CAUSE = 14;
+
+    @Nonnull
+    private final ByteDeserializer byteDeserializer;
+
+    @Nonnull
+    private final IntDeserializer intDeserializer;
+
+    @Nonnull
+    private final StringDeserializer stringDeserializer;
+
+    @Nonnull
+    private final DictionaryStringDeserializer dictionaryDeserializer;
+
+    private final ArrayList<StackTraceElement> frameDictionary = new ArrayList<>();
+
+    private int step;
+
+    private Deserializer current;
+
+    private ReceivedThrowable[] nodes;
+
+    private int[][] suppressedIndexes;
+
+    private int[] causeIndexes;
+
+    private int node;
+
+    private String className;
+
+    private int flags;
+
+    private String message;
+
+    private StackTraceElement[] trace;
+
+    private int frame;
+
+    private int frameFlags;
+
+    private String location;
+
+    private String frameClassName;
+
+    private String methodName;
+
+    private String fileName;
+
+    private int suppressedIndex;
+
+    private ReceivedThrowable value;
+
+    public ThrowableDeserializer(
+            @Nonnull ByteDeserializer byteDeserializer,
+            @Nonnull IntDeserializer intDeserializer,
+            @Nonnull StringDeserializer stringDeserializer,
+            @Nonnull DictionaryStringDeserializer dictionaryDeserializer
+    ) {
+        this.byteDeserializer = byteDeserializer;
+        this.intDeserializer = intDeserializer;
+        this.stringDeserializer = stringDeserializer;
+        this.dictionaryDeserializer = dictionaryDeserializer;
+    }
+
+    @Override
+    public void reset() {
+
+        byteDeserializer.reset();
+        intDeserializer.reset();
+        stringDeserializer.reset();
+        dictionaryDeserializer.reset();
+        clear();
+        value = null;
+    }
+
+    public void clearDictionary() {
+        frameDictionary.clear();
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        while (true) {
+            if (current == null) {
+                current = nextDeserializer();
+            }
+            remaining = current.consume(byteBuffer, remaining);
+            if (remaining == -1) {
+                return remaining;
+            }
+            current = null;
+            if (accept()) {
+                return remaining;
+            }
+        }
+    }
+
+    @Nonnull
+    public ReceivedThrowable value() {
+        return value;
+    }
+
+    @Nonnull
+    private Deserializer nextDeserializer() {
+
+        switch (step) {
+            case CLASS_NAME:
+            case FRAME_LOCATION:
+            case FRAME_CLASS_NAME:
+            case FRAME_METHOD_NAME:
+            case FRAME_FILE_NAME:
+                return dictionaryDeserializer;
+            case FLAGS:
+            case FRAME_FLAGS:
+                return byteDeserializer;
+            case MESSAGE:
+                return stringDeserializer;
+            default:
+                return intDeserializer;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the whole throwable has been read
+     */
+    private boolean accept() {
+
+        switch (step) {
+            case NODE_COUNT: {
+                final var count = intDeserializer.intValue();
+                if (count <= 0) {
+                    throw new IllegalArgumentException();
+                }
+                nodes = new ReceivedThrowable[count];
+                suppressedIndexes = new int[count][];
+                causeIndexes = new int[count];
+                node = 0;
+                step = CLASS_NAME;
+                return false;
+            }
+            case CLASS_NAME:
+                className = dictionaryDeserializer.value();
+                step = FLAGS;
+                return false;
+            case FLAGS:
+                flags = byteDeserializer.byteValue();
+                message = null;
+                step = (flags & HAS_MESSAGE) == 0 ? FRAME_COUNT : MESSAGE;
+                return false;
+            case MESSAGE:
+                message = stringDeserializer.value();
+                step = FRAME_COUNT;
+                return false;
+            case FRAME_COUNT: {
+                final var count = intDeserializer.intValue();
+                if (count < 0) {
+                    throw new IllegalArgumentException();
+                }
+                trace = new StackTraceElement[count];
+                frame = 0;
+                step = count == 0 ? SUPPRESSED_COUNT : FRAME;
+                return false;
+            }
+            case FRAME: {
+                final var index = intDeserializer.intValue();
+                final var size = frameDictionary.size();
+                if (index < 0 || index > size) {
+                    throw new IllegalArgumentException();
+                }
+                if (index < size) {
+                    trace[frame] = frameDictionary.get(index);
+                    nextFrame();
+                } else {
+                    step = FRAME_FLAGS;
+                }
+                return false;
+            }
+            case FRAME_FLAGS:
+                frameFlags = byteDeserializer.byteValue();
+                step = FRAME_LOCATION;
+                return false;
+            case FRAME_LOCATION:
+                location = dictionaryDeserializer.value();
+                step = FRAME_CLASS_NAME;
+                return false;
+            case FRAME_CLASS_NAME:
+                frameClassName = dictionaryDeserializer.value();
+                step = FRAME_METHOD_NAME;
+                return false;
+            case FRAME_METHOD_NAME:
+                methodName = dictionaryDeserializer.value();
+                fileName = null;
+                step = (frameFlags & HAS_FILE_NAME) == 0 ? FRAME_LINE_NUMBER : FRAME_FILE_NAME;
+                return false;
+            case FRAME_FILE_NAME:
+                fileName = dictionaryDeserializer.value();
+                step = FRAME_LINE_NUMBER;
+                return false;
+            case FRAME_LINE_NUMBER: {
+                final var stackFrame =
+                        newStackFrame(location, frameClassName, methodName, fileName, intDeserializer.intValue());
+                frameDictionary.add(stackFrame);
+                trace[frame] = stackFrame;
+                nextFrame();
+                return false;
+            }
+            case SUPPRESSED_COUNT: {
+                final var count = intDeserializer.intValue();
+                if (count < 0) {
+                    throw new IllegalArgumentException();
+                }
+                suppressedIndexes[node] = new int[count];
+                suppressedIndex = 0;
+                step = count == 0 ? CAUSE : SUPPRESSED;
+                return false;
+            }
+            case SUPPRESSED: {
+                final var indexes = suppressedIndexes[node];
+                indexes[suppressedIndex] = checkIndex(intDeserializer.intValue());
+                suppressedIndex++;
+                if (suppressedIndex == indexes.length) {
+                    step = CAUSE;
+                }
+                return false;
+            }
+            case CAUSE: {
+                final var index = intDeserializer.intValue();
+                causeIndexes[node] = index == -1 ? -1 : checkIndex(index);
+                nodes[node] = newNode();
+                node++;
+                if (node < nodes.length) {
+                    step = CLASS_NAME;
+                    return false;
+                }
+                link();
+                value = nodes[0];
+                clear();
+                return true;
+            }
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void nextFrame() {
+
+        frame++;
+        step = frame == trace.length ? SUPPRESSED_COUNT : FRAME;
+    }
+
+    private int checkIndex(int index) {
+
+        if (index < 0 || index >= nodes.length) {
+            throw new IllegalArgumentException();
+        }
+        return index;
+    }
+
+    @Nonnull
+    private ReceivedThrowable newNode() {
+
+        if ((flags & CUSTOM_DESCRIPTION) != 0) {
+            return new ReceivedThrowable(className, null, message, trace);
+        }
+        final var description = message == null ? className : className + ": " + message;
+        return new ReceivedThrowable(className, message, description, trace);
+    }
+
+    private void link() {
+
+        for (int i = 0; i < nodes.length; i++) {
+            final var throwable = nodes[i];
+            for (final var index : suppressedIndexes[i]) {
+                throwable.addSuppressed(nodes[index]);
+            }
+            final var causeIndex = causeIndexes[i];
+            throwable.setCause(causeIndex == -1 ? null : nodes[causeIndex]);
+        }
+    }
+
+    private void clear() {
+
+        step = NODE_COUNT;
+        current = null;
+        nodes = null;
+        suppressedIndexes = null;
+        causeIndexes = null;
+        className = null;
+        message = null;
+        trace = null;
+        location = null;
+        frameClassName = null;
+        methodName = null;
+        fileName = null;
+    }
+
+    /**
+     * Reproduces the location text of the <code>ThrowableSerializer</code> through the module name, which is printed
+     * in front of the class name followed by a slash.
+     */
+    @Nonnull
+    private static StackTraceElement newStackFrame(
+            @Nonnull String location,
+            @Nonnull String className,
+            @Nonnull String methodName,
+            @Nullable String fileName,
+            int lineNumber
+    ) {
+        if (location.isEmpty()) {
+            return new StackTraceElement(className, methodName, fileName, lineNumber);
+        }
+        final var moduleName = location.substring(0, location.length() - 1);
+        return new StackTraceElement(null, moduleName, null, className, methodName, fileName, lineNumber);
+    }
+}
@@ -0,0 +1,99 @@
+package codes.writeonce.slf4j.ledger.transport.serializer;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Writes a string as its index in a dictionary shared with the receiving side until the dictionary is cleared.
+ * A string seen for the first time gets the next index and is followed by its contents.
+ */
+public class DictionaryStringSerializer implements Serializer {
+
+    @Nonnull
+    private final IntSerializer intSerializer;
+
+    @Nonnull
+    private final StringSerializer stringSerializer;
+
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+
+    private int state;
+
+    private String value;
+
+    public DictionaryStringSerializer(
+            @Nonnull IntSerializer intSerializer,
+            @Nonnull StringSerializer stringSerializer
+    ) {
+        this.intSerializer = intSerializer;
+        this.stringSerializer = stringSerializer;
+    }
+
+    @Override
+    public void reset() {
+
+        intSerializer.reset();
+        stringSerializer.reset();
+        state = 0;
+        value = null;
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        switch (state) {
+            case 0:
+            case 1:
+                remaining = intSerializer.consume(byteBuffer, remaining);
+                if (remaining == -1) {
+                    return remaining;
+                }
+                if (state == 0) {
+                    return remaining;
+                }
+                // the int serializer is shared with the string serializer, so the value is set up only now
+                stringSerializer.value(value);
+                value = null;
+                state = 2;
+            case 2:
+                remaining = stringSerializer.consume(byteBuffer, remaining);
+                if (remaining == -1) {
+                    return remaining;
+                }
+                state = 0;
+                return remaining;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * @return number of strings in the dictionary
+     */
+    public int dictionarySize() {
+        return dictionary.size();
+    }
+
+    /**
+     * Forgets the strings written so far, which the receiving side must be told to do as well.
+     */
+    public void clearDictionary() {
+        dictionary.clear();
+    }
+
+    public void value(@Nonnull String value) {
+
+        final var index = dictionary.get(value);
+        if (index == null) {
+            final var newIndex = dictionary.size();
+            dictionary.put(value, newIndex);
+            intSerializer.value(newIndex);
+            this.value = value;
+            state = 1;
+        } else {
+            intSerializer.value(index);
+            state = 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package codes.writeonce.slf4j.ledger.transport.serializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes an MDC as the changes against the previous MDC written for the same thread name: the number of changes
+ * followed by the key of every change, a byte telling whether the key was removed or set, and the new value.
+ * Keys go through a dictionary of their own, and a key mapped to <code>null</code> is sent as removed.
+ * <p>
+ * The maps are remembered by reference, so they must not be modified once passed in. An unchanged MDC snapshot
+ * is detected by identity and costs a single int.
+ */
+public class MapDeltaSerializer implements Serializer {
+
+    private static final int REMOVED = 0;
+
+    private static final int SET = 1;
+
+    private static final int CHANGE_COUNT = 0;
+
+    private static final int KEY = 1;
+
+    private static final int OPERATION = 2;
+
+    private static final int VALUE = 3;
+
+    private static final int DONE = 4;
+
+    @Nonnull
+    private final ByteSerializer byteSerializer;
+
+    @Nonnull
+    private final IntSerializer intSerializer;
+
+    @Nonnull
+    private final StringSerializer stringSerializer;
+
+    @Nonnull
+    private final DictionaryStringSerializer keySerializer;
+
+    private final HashMap<String, Map<String, String>> previousMaps = new HashMap<>();
+
+    private final ArrayList<String> changedKeys = new ArrayList<>();
+
+    /**
+     * <code>null</code> for a removed key.
+     */
+    private final ArrayList<String> changedValues = new ArrayList<>();
+
+    private final BiConsumer<String, String> removedKeyCollector = this::collectRemovedKey;
+
+    private final BiConsumer<String, String> changedEntryCollector = this::collectChangedEntry;
+
+    private Map<String, String> map;
+
+    private Map<String, String> previousMap;
+
+    private int step;
+
+    private Serializer current;
+
+    private int change;
+
+    public MapDeltaSerializer(
+            @Nonnull ByteSerializer byteSerializer,
+            @Nonnull IntSerializer intSerializer,
+            @Nonnull StringSerializer stringSerializer,
+            @Nonnull DictionaryStringSerializer keySerializer
+    ) {
+        this.byteSerializer = byteSerializer;
+        this.intSerializer = intSerializer;
+        this.stringSerializer = stringSerializer;
+        this.keySerializer = keySerializer;
+    }
+
+    @Override
+    public void reset() {
+
+        byteSerializer.reset();
+        intSerializer.reset();
+        stringSerializer.reset();
+        keySerializer.reset();
+        clear();
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        while (true) {
+            if (current == null) {
+                if (step == DONE) {
+                    clear();
+                    return remaining;
+                }
+                current = nextStep();
+            }
+            remaining = current.consume(byteBuffer, remaining);
+            if (remaining == -1) {
+                return remaining;
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * @return number of previous MDCs and keys remembered
+     */
+    public int dictionarySize() {
+        return previousMaps.size() + keySerializer.dictionarySize();
+    }
+
+    /**
+     * Forgets the previous MDCs and the keys written so far, which the receiving side must be told to do as well.
+     */
+    public void clearDictionary() {
+        previousMaps.clear();
+        keySerializer.clearDictionary();
+    }
+
+    public void value(@Nullable String threadName, @Nonnull Map<String, String> value) {
+
+        final var previous = previousMaps.put(threadName, value);
+        if (previous != value) {
+            map = value;
+            if (previous != null) {
+                previousMap = previous;
+                previous.forEach(removedKeyCollector);
+            }
+            value.forEach(changedEntryCollector);
+            map = null;
+            previousMap = null;
+        }
+    }
+
+    private void collectRemovedKey(@Nonnull String key, @Nullable String value) {
+
+        if (!map.containsKey(key)) {
+            changedKeys.add(key);
+            changedValues.add(null);
+        }
+    }
+
+    private void collectChangedEntry(@Nonnull String key, @Nullable String value) {
+
+        if (previousMap == null || !Objects.equals(previousMap.get(key), value)) {
+            changedKeys.add(key);
+            changedValues.add(value);
+        }
+    }
+
+    private void clear() {
+
+        changedKeys.clear();
+        changedValues.clear();
+        step = CHANGE_COUNT;
+        current = null;
+        change = 0;
+    }
+
+    @Nonnull
+    private Serializer nextStep() {
+
+        switch (step) {
+            case CHANGE_COUNT:
+                intSerializer.value(changedKeys.size());
+                step = changedKeys.isEmpty() ? DONE : KEY;
+                return intSerializer;
+            case KEY:
+                keySerializer.value(changedKeys.get(change));
+                step = OPERATION;
+                return keySerializer;
+            case OPERATION:
+                if (changedValues.get(change) == null) {
+                    byteSerializer.value((byte) REMOVED);
+                    nextChange();
+                } else {
+                    byteSerializer.value((byte) SET);
+                    step = VALUE;
+                }
+                return byteSerializer;
+            case VALUE:
+                stringSerializer.value(changedValues.get(change));
+                nextChange();
+                return stringSerializer;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void nextChange() {
+
+        change++;
+        step = change == changedKeys.size() ? DONE : KEY;
+    }
+}
@@ -40,7 +40,8 @@ public abstract class StringSerializer implements Serializer {
                     }
                     state += 2;
                     if (remaining == 0) {
-                        return remaining;
+                        // the characters are still to be written into the next buffer
+                        return length == 0 ? remaining : -1;
                     }
                     break;
                 case 2: {
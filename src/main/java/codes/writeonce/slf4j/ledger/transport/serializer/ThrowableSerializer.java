@@ -0,0 +1,351 @@
+package codes.writeonce.slf4j.ledger.transport.serializer;
+
+import codes.writeonce.slf4j.ledger.ThrowableSnapshot;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes a throwable together with its causes and suppressed throwables as a list of nodes that refer to each other
+ * by index, so that circular references survive the trip.
+ * <p>
+ * Class, method and file names go through the string dictionary of the stream, and every distinct stack frame is
+ * added to a frame dictionary of its own, so a stack trace that has been sent before costs one int per frame.
+ * The text that {@link StackTraceElement#toString()} puts in front of the class name, such as <code>java.base/</code>
+ * or <code>app//</code>, is sent as the frame location, since the flags that decide which parts of the class loader
+ * and module it shows are not accessible.
+ */
+public class ThrowableSerializer implements Serializer {
+
+    private static final int HAS_MESSAGE = 1;
+
+    private static final int CUSTOM_DESCRIPTION = 2;
+
+    private static final int HAS_FILE_NAME = 1;
+
+    private static final int NODE_COUNT = 0;
+
+    private static final int CLASS_NAME = 1;
+
+    private static final int FLAGS = 2;
+
+    private static final int MESSAGE = 3;
+
+    private static final int FRAME_COUNT = 4;
+
+    private static final int FRAME = 5;
+
+    private static final int FRAME_FLAGS = 6;
+
+    private static final int FRAME_LOCATION = 7;
+
+    private static final int FRAME_CLASS_NAME = 8;
+
+    private static final int FRAME_METHOD_NAME = 9;
+
+    private static final int FRAME_FILE_NAME = 10;
+
+    private static final int FRAME_LINE_NUMBER = 11;
+
+    private static final int SUPPRESSED_COUNT = 12;
+
+    private static final int SUPPRESSED = 13;
+
+    private static final int CAUSE = 14;
+
+    private static final int DONE = 15;
+
+    @Nonnull
+    private final ByteSerializer byteSerializer;
+
+    @Nonnull
+    private final IntSerializer intSerializer;
+
+    @Nonnull
+    private final StringSerializer stringSerializer;
+
+    @Nonnull
+    private final DictionaryStringSerializer dictionarySerializer;
+
+    private final HashMap<StackTraceElement, Integer> frameDictionary = new HashMap<>();
+
+    private final IdentityHashMap<Throwable, Integer> nodeIndexes = new IdentityHashMap<>();
+
+    private final ArrayList<Throwable> nodes = new ArrayList<>();
+
+    private final ArrayList<StackTraceElement[]> traces = new ArrayList<>();
+
+    private final ArrayList<Throwable[]> suppressed = new ArrayList<>();
+
+    private final ArrayList<Throwable> causes = new ArrayList<>();
+
+    private int step;
+
+    private Serializer current;
+
+    private int node;
+
+    private int frame;
+
+    private int suppressedIndex;
+
+    private String message;
+
+    private StackTraceElement newFrame;
+
+    public ThrowableSerializer(
+            @Nonnull ByteSerializer byteSerializer,
+            @Nonnull IntSerializer intSerializer,
+            @Nonnull StringSerializer stringSerializer,
+            @Nonnull DictionaryStringSerializer dictionarySerializer
+    ) {
+        this.byteSerializer = byteSerializer;
+        this.intSerializer = intSerializer;
+        this.stringSerializer = stringSerializer;
+        this.dictionarySerializer = dictionarySerializer;
+    }
+
+    @Override
+    public void reset() {
+
+        byteSerializer.reset();
+        intSerializer.reset();
+        stringSerializer.reset();
+        dictionarySerializer.reset();
+        clear();
+    }
+
+    @Override
+    public int consume(@Nonnull ByteBuffer byteBuffer, int remaining) {
+
+        while (true) {
+            if (current == null) {
+                if (step == DONE) {
+                    clear();
+                    return remaining;
+                }
+                current = nextStep();
+            }
+            remaining = current.consume(byteBuffer, remaining);
+            if (remaining == -1) {
+                return remaining;
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * @return number of stack frames in the frame dictionary
+     */
+    public int dictionarySize() {
+        return frameDictionary.size();
+    }
+
+    /**
+     * Forgets the stack frames written so far, which the receiving side must be told to do as well.
+     */
+    public void clearDictionary() {
+        frameDictionary.clear();
+    }
+
+    public void value(@Nonnull Throwable value) {
+
+        addNode(value);
+        for (int i = 0; i < nodes.size(); i++) {
+            final var throwable = nodes.get(i);
+            traces.add(throwable.getStackTrace());
+            final var suppressedThrowables = throwable.getSuppressed();
+            suppressed.add(suppressedThrowables);
+            for (final var suppressedThrowable : suppressedThrowables) {
+                addNode(suppressedThrowable);
+            }
+            final var cause = throwable.getCause();
+            causes.add(cause);
+            if (cause != null) {
+                addNode(cause);
+            }
+        }
+    }
+
+    private void addNode(@Nonnull Throwable throwable) {
+
+        if (!nodeIndexes.containsKey(throwable)) {
+            nodeIndexes.put(throwable, nodes.size());
+            nodes.add(throwable);
+        }
+    }
+
+    private void clear() {
+
+        nodeIndexes.clear();
+        nodes.clear();
+        traces.clear();
+        suppressed.clear();
+        causes.clear();
+        step = NODE_COUNT;
+        current = null;
+        node = 0;
+        message = null;
+        newFrame = null;
+    }
+
+    @Nonnull
+    private Serializer nextStep() {
+
+        switch (step) {
+            case NODE_COUNT:
+                intSerializer.value(nodes.size());
+                step = CLASS_NAME;
+                return intSerializer;
+            case CLASS_NAME:
+                dictionarySerializer.value(getClassName(nodes.get(node)));
+                step = FLAGS;
+                return dictionarySerializer;
+            case FLAGS: {
+                final var throwable = nodes.get(node);
+                final var description = throwable.toString();
+                final var localizedMessage = throwable.getLocalizedMessage();
+                final int flags;
+                if (isDefaultDescription(description, getClassName(throwable), localizedMessage)) {
+                    message = localizedMessage;
+                    flags = message == null ? 0 : HAS_MESSAGE;
+                } else {
+                    message = description;
+                    flags = HAS_MESSAGE | CUSTOM_DESCRIPTION;
+                }
+                byteSerializer.value((byte) flags);
+                step = message == null ? FRAME_COUNT : MESSAGE;
+                return byteSerializer;
+            }
+            case MESSAGE:
+                stringSerializer.value(message);
+                message = null;
+                step = FRAME_COUNT;
+                return stringSerializer;
+            case FRAME_COUNT: {
+                final var length = traces.get(node).length;
+                intSerializer.value(length);
+                frame = 0;
+                step = length == 0 ? SUPPRESSED_COUNT : FRAME;
+                return intSerializer;
+            }
+            case FRAME: {
+                final var stackFrame = traces.get(node)[frame];
+                final var index = frameDictionary.get(stackFrame);
+                if (index == null) {
+                    final var newIndex = frameDictionary.size();
+                    frameDictionary.put(stackFrame, newIndex);
+                    intSerializer.value(newIndex);
+                    newFrame = stackFrame;
+                    step = FRAME_FLAGS;
+                } else {
+                    intSerializer.value(index);
+                    nextFrame();
+                }
+                return intSerializer;
+            }
+            case FRAME_FLAGS:
+                byteSerializer.value((byte) (newFrame.getFileName() == null ? 0 : HAS_FILE_NAME));
+                step = FRAME_LOCATION;
+                return byteSerializer;
+            case FRAME_LOCATION:
+                dictionarySerializer.value(getLocation(newFrame));
+                step = FRAME_CLASS_NAME;
+                return dictionarySerializer;
+            case FRAME_CLASS_NAME:
+                dictionarySerializer.value(newFrame.getClassName());
+                step = FRAME_METHOD_NAME;
+                return dictionarySerializer;
+            case FRAME_METHOD_NAME:
+                dictionarySerializer.value(newFrame.getMethodName());
+                step = newFrame.getFileName() == null ? FRAME_LINE_NUMBER : FRAME_FILE_NAME;
+                return dictionarySerializer;
+            case FRAME_FILE_NAME:
+                dictionarySerializer.value(newFrame.getFileName());
+                step = FRAME_LINE_NUMBER;
+                return dictionarySerializer;
+            case FRAME_LINE_NUMBER:
+                intSerializer.value(newFrame.getLineNumber());
+                newFrame = null;
+                nextFrame();
+                return intSerializer;
+            case SUPPRESSED_COUNT: {
+                final var length = suppressed.get(node).length;
+                intSerializer.value(length);
+                suppressedIndex = 0;
+                step = length == 0 ? CAUSE : SUPPRESSED;
+                return intSerializer;
+            }
+            case SUPPRESSED: {
+                final var suppressedThrowables = suppressed.get(node);
+                intSerializer.value(nodeIndexes.get(suppressedThrowables[suppressedIndex]));
+                suppressedIndex++;
+                if (suppressedIndex == suppressedThrowables.length) {
+                    step = CAUSE;
+                }
+                return intSerializer;
+            }
+            case CAUSE: {
+                final var cause = causes.get(node);
+                intSerializer.value(cause == null ? -1 : nodeIndexes.get(cause));
+                node++;
+                step = node == nodes.size() ? DONE : CLASS_NAME;
+                return intSerializer;
+            }
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void nextFrame() {
+
+        frame++;
+        step = frame == traces.get(node).length ? SUPPRESSED_COUNT : FRAME;
+    }
+
+    @Nonnull
+    private static String getClassName(@Nonnull Throwable throwable) {
+        return throwable instanceof ThrowableSnapshot snapshot
+                ? snapshot.getClassName()
+                : throwable.getClass().getName();
+    }
+
+    private static boolean isDefaultDescription(
+            @Nonnull String description,
+            @Nonnull String className,
+            @Nullable String localizedMessage
+    ) {
+        if (localizedMessage == null) {
+            return description.equals(className);
+        }
+
+        final var length = className.length();
+        return description.length() == length + 2 + localizedMessage.length()
+               && description.startsWith(className)
+               && description.startsWith(": ", length)
+               && description.endsWith(localizedMessage);
+    }
+
+    @Nonnull
+    private static String getLocation(@Nonnull StackTraceElement stackFrame) {
+
+        final var text = stackFrame.toString();
+        final var start = stackFrame.getClassName() + '.' + stackFrame.getMethodName() + '(';
+        if (text.startsWith(start)) {
+            return "";
+        }
+
+        var index = text.indexOf('/');
+        while (index != -1) {
+            if (text.startsWith(start, index + 1)) {
+                return text.substring(0, index + 1);
+            }
+            index = text.indexOf('/', index + 1);
+        }
+        return "";
+    }
+}
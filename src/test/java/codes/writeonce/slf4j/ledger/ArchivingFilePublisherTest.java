@@ -0,0 +1,128 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArchivingFilePublisherTest {
+
+    private static final long BASE_MILLIS = Instant.parse("2024-05-01T10:00:00Z").toEpochMilli();
+
+    private static final int COMPRESSION_BLOCK_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void reopenKeepsFinishedBlocks() throws IOException {
+
+        // every batch finishes a block, and so do enough bytes of text
+        final var config = config("0");
+
+        // the publishers are never closed, as if the process has crashed right after a batch and with a block open
+        final var crashed = new RollingFilePublisher(config, new GzipCompressor(6));
+        publishBatches(0, 200, crashed);
+
+        final var crashedWithOpenBlock = new RollingFilePublisher(config, new GzipCompressor(6));
+        publishBatches(200, 300, crashedWithOpenBlock);
+        for (int i = 300; i < 303; i++) {
+            publish(i, crashedWithOpenBlock);
+        }
+
+        final var publisher = new RollingFilePublisher(config, new GzipCompressor(6));
+        publishBatches(400, 500, publisher);
+        publisher.close();
+
+        final var expected = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            expected.append(render(i));
+        }
+        for (int i = 400; i < 500; i++) {
+            expected.append(render(i));
+        }
+
+        final var logPath = logPath();
+        assertEquals(expected.toString(), new String(new GZIPInputStream(Files.newInputStream(logPath)).readAllBytes(),
+                UTF_8));
+
+        final var queried = new ByteArrayOutputStream();
+        TimeRangeQuery.query(logPath, BASE_MILLIS, BASE_MILLIS + 500, queried);
+        assertEquals(expected.toString(), queried.toString(UTF_8));
+    }
+
+    @Test(timeout = 30000)
+    public void idleQueueFinishesBlock() throws IOException, InterruptedException {
+
+        final var publisher = new RollingFilePublisher(config("100"), new GzipCompressor(6));
+        final var queue = new LogQueue(publisher, new TestConfig(Map.of()));
+        final var text = render(0);
+        queue.publish(BASE_MILLIS, Level.INFO, "test", null, null, null, new StringBuilder("message 0"));
+
+        // no later event or batch finishes the block, the idle consumer does
+        final var indexPath = TimestampIndexWriter.indexPath(logPath());
+        while (!Files.exists(indexPath) || Files.size(indexPath) < TimestampIndexWriter.ENTRY_SIZE) {
+            Thread.sleep(10);
+        }
+        assertEquals(text, new String(new GZIPInputStream(Files.newInputStream(logPath())).readAllBytes(), UTF_8));
+
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+    }
+
+    @Nonnull
+    private TestConfig config(@Nonnull String compressionBlockMillis) {
+        return new TestConfig(Map.of(
+                "baseDir", temporaryFolder.getRoot().toString(),
+                "inlineCompression", "true",
+                "compressionBlockSize", String.valueOf(COMPRESSION_BLOCK_SIZE),
+                "compressionBlockMillis", compressionBlockMillis
+        ));
+    }
+
+    @Nonnull
+    private Path logPath() {
+        return temporaryFolder.getRoot().toPath().resolve("current/main.2024-05-01-10.log.gz");
+    }
+
+    private static void publishBatches(int from, int to, @Nonnull Publisher publisher) {
+
+        for (int i = from; i < to; i++) {
+            publish(i, publisher);
+            if (i % 10 == 9) {
+                publisher.endOfBatch();
+            }
+        }
+    }
+
+    private static void publish(int i, @Nonnull Publisher publisher) {
+
+        final var text = "message " + i;
+        publisher.next(text.length(), BASE_MILLIS + i, TimeUnit.MILLISECONDS, Level.INFO, "test", null, null, null);
+        publisher.chunk(true, CharBuffer.wrap(text));
+    }
+
+    @Nonnull
+    private static String render(int i) {
+
+        final var outputStream = new ByteArrayOutputStream();
+        final var publisher = new StreamPublisher(Channels.newChannel(outputStream));
+        publish(i, publisher);
+        publisher.endOfBatch();
+        return outputStream.toString(UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class DeferredFormattingTest {
+
+    private static final String[] FORMATS =
+            {"{}", "{} {}", "no placeholders", "\\{} {}", "\\\\{} {}", "{", "{}{}{}", ""};
+
+    private final RecordingPublisher deferredPublisher = new RecordingPublisher();
+
+    private final LoggerImpl deferred = new LoggerImpl("test",
+            new LogQueue(deferredPublisher, new TestConfig(Map.of("deferredFormatting", "true"))));
+
+    private final RecordingPublisher publisher = new RecordingPublisher();
+
+    private final LoggerImpl logger = new LoggerImpl("test", new LogQueue(publisher, new TestConfig(Map.of())));
+
+    @Test
+    public void immutableArgumentsAreFormattedOnConsumer() throws InterruptedException {
+
+        final var callerThread = Thread.currentThread().getName();
+
+        deferred.info("{} and {}", ThreadProbe.VALUE, 1);
+        final var event = deferredPublisher.take();
+        assertNotEquals(callerThread + " and 1", event.text);
+        assertNull(event.throwable);
+
+        logger.info("{} and {}", ThreadProbe.VALUE, 1);
+        assertEquals(callerThread + " and 1", publisher.takeText());
+    }
+
+    @Test
+    public void mutableArgumentsAreFormattedOnCaller() throws InterruptedException {
+
+        final var builder = new StringBuilder("before");
+        deferred.info("{}", builder);
+        deferred.info("{} {}", 1, builder);
+        deferred.info("{} {} {}", 1, 2, builder);
+        builder.setLength(0);
+        builder.append("after");
+
+        assertEquals("before", deferredPublisher.takeText());
+        assertEquals("1 before", deferredPublisher.takeText());
+        assertEquals("1 2 before", deferredPublisher.takeText());
+    }
+
+    @Test
+    public void textMatchesImmediateFormatting() throws InterruptedException {
+
+        final var argumentSets = new Object[][]{
+                {1},
+                {"text", null},
+                {'c', 2.5, 3L},
+                {1.5f, (short) 2, (byte) 3, true, Level.WARN},
+                {1, 2, 3, 4, 5, 6, 7, 8},
+                {1, 2, 3, 4, 5, 6, 7, 8, 9},
+                {new int[]{1, 2}, "array"},
+                {"with throwable", new IllegalStateException("failure")},
+        };
+
+        for (final var format : FORMATS) {
+            for (final var arguments : argumentSets) {
+                deferred.info(format, arguments);
+                logger.info(format, arguments);
+                assertSameEvent();
+                if (arguments.length == 1) {
+                    deferred.info(format, arguments[0]);
+                    logger.info(format, arguments[0]);
+                    assertSameEvent();
+                } else if (arguments.length == 2) {
+                    deferred.info(format, arguments[0], arguments[1]);
+                    logger.info(format, arguments[0], arguments[1]);
+                    assertSameEvent();
+                }
+            }
+        }
+    }
+
+    private void assertSameEvent() throws InterruptedException {
+
+        final var expected = publisher.take();
+        final var actual = deferredPublisher.take();
+        assertEquals(expected.text, actual.text);
+        assertEquals(expected.throwable == null, actual.throwable == null);
+    }
+
+    private enum ThreadProbe {
+
+        VALUE;
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package codes.writeonce.slf4j.ledger;
+
+import codes.writeonce.slf4j.ledger.transport.LogEventPublisher;
+import codes.writeonce.slf4j.ledger.transport.LogEventReceiver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static codes.writeonce.slf4j.ledger.JournalFormat.INDEX_ENTRY_SIZE;
+import static codes.writeonce.slf4j.ledger.JournalFormat.SUMMARY_ENTRY_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JournalReaderTest {
+
+    private static final int EVENT_COUNT = 500;
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private static final int INDEX_INTERVAL = 16;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void replay() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        assertTrue(Files.exists(directory.resolve(JournalFormat.segmentFileName("test", streamId, 3))));
+        assertEquals(range(0, EVENT_COUNT), replay(directory, streamId));
+    }
+
+    @Test
+    public void segmentsAreWrittenAtFullSize() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        var path = directory.resolve(JournalFormat.segmentFileName("test", streamId, 0));
+        for (int i = 1; Files.exists(path); i++) {
+            assertEquals(SEGMENT_SIZE, Files.size(path));
+            path = directory.resolve(JournalFormat.segmentFileName("test", streamId, i));
+        }
+    }
+
+    @Test
+    public void closeDeletesReservedSegment() throws IOException {
+
+        final var directory = write();
+        try (var paths = Files.newDirectoryStream(directory, "*" + JournalFormat.RESERVED_SUFFIX)) {
+            assertFalse(paths.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void closeWritesLastSummary() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        final var blockCount = Files.size(directory.resolve(JournalFormat.indexFileName("test", streamId)))
+                               / INDEX_ENTRY_SIZE;
+        assertTrue(blockCount >= EVENT_COUNT / INDEX_INTERVAL);
+        assertEquals(blockCount * SUMMARY_ENTRY_SIZE,
+                Files.size(directory.resolve(JournalFormat.summaryFileName("test", streamId))));
+    }
+
+    @Test
+    public void replayFromSequence() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        for (final var first : new int[] {0, 1, 17, 300, EVENT_COUNT - 1}) {
+            // the publisher numbers the events from 1
+            final var sequence = first + 1L;
+            final var publisher = new RecordingPublisher();
+            new JournalReader(directory, "test")
+                    .replayFromSequence(streamId, sequence, new LogEventReceiver(publisher, sequence));
+            assertEquals(range(first, EVENT_COUNT), texts(publisher.drain()));
+        }
+    }
+
+    @Test
+    public void replayFromTimestamp() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        for (final var first : new int[] {0, 1, 17, 300, EVENT_COUNT - 1}) {
+            final var timestampMillis = timestampMillis(first);
+            for (final var millis : new long[] {timestampMillis, timestampMillis - 6}) {
+                final var publisher = new RecordingPublisher();
+                new JournalReader(directory, "test").replayFromTimestamp(streamId, millis,
+                        new LogEventReceiver(publisher, Long.MIN_VALUE, millis));
+                assertEquals(range(first, EVENT_COUNT), texts(publisher.drain()));
+            }
+        }
+    }
+
+    @Test
+    public void replayMatching() throws IOException {
+
+        final var directory = write();
+        final var streamId = singleStream(directory);
+
+        final var fromMillis = timestampMillis(200);
+        final var toMillis = timestampMillis(320);
+        final var mdc = Map.of("user", "user-3");
+
+        final var publisher = new RecordingPublisher();
+        new JournalReader(directory, "test").replayMatching(streamId, EnumSet.of(Level.ERROR), mdc, fromMillis,
+                toMillis, new LogEventReceiver(publisher));
+        final var events = publisher.drain();
+
+        // only the blocks that may hold matching events are read
+        assertTrue(events.size() < 200);
+
+        final var matching = new ArrayList<String>();
+        for (final var event : events) {
+            if (event.level == Level.ERROR && event.timestamp >= fromMillis && event.timestamp < toMillis
+                && event.mdc != null && "user-3".equals(event.mdc.get("user"))) {
+                matching.add(event.text);
+            }
+        }
+
+        final var expected = IntStream.range(200, 320)
+                .filter(i -> i % 5 == Level.ERROR.ordinal() && i % 11 == 3 && i % 3 != 0)
+                .mapToObj(i -> "message " + i)
+                .collect(Collectors.toList());
+        assertNotEquals(List.of(), expected);
+        assertEquals(expected, matching);
+    }
+
+    @Test
+    public void streamsOfSameMillisecond() throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        for (int i = 0; i < 3; i++) {
+            final var publisher = new LogEventPublisher(new ChunkWriterImpl(directory, "test", SEGMENT_SIZE, 1));
+            LogEventTransportTest.publish(i, publisher);
+            publisher.close();
+        }
+
+        assertEquals(3, new JournalReader(directory, "test").streams().length);
+    }
+
+    @Test
+    public void failedRollIsTriedAgain() throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        final var chunkWriter = new ChunkWriterImpl(directory, "test", SEGMENT_SIZE, INDEX_INTERVAL);
+        writeEvent(chunkWriter, 1);
+        final var streamId = singleStream(directory);
+
+        // the second segment cannot be created while a directory has its name
+        final var blocker =
+                Files.createDirectory(directory.resolve(JournalFormat.segmentFileName("test", streamId, 1)));
+        var sequence = 2L;
+        try {
+            for (; sequence < 1000; sequence++) {
+                writeEvent(chunkWriter, sequence);
+            }
+            fail();
+        } catch (UncheckedIOException e) {
+            // the first segment is full
+        }
+
+        Files.delete(blocker);
+        for (final var end = sequence + 100; sequence < end; sequence++) {
+            writeEvent(chunkWriter, sequence);
+        }
+        chunkWriter.close();
+
+        final var sequences = new ArrayList<Long>();
+        new JournalReader(directory, "test").replay(streamId, new Receiver() {
+            @Override
+            public void next(long sequence, long offset, boolean last, @Nonnull ByteBuffer byteBuffer) {
+                if (last) {
+                    sequences.add(sequence);
+                }
+            }
+
+            @Override
+            public void reset() {
+                // empty
+            }
+        });
+        assertEquals(LongStream.range(1, sequence).boxed().collect(Collectors.toList()), sequences);
+    }
+
+    @Nonnull
+    private Path write() throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        final var publisher =
+                new LogEventPublisher(new ChunkWriterImpl(directory, "test", SEGMENT_SIZE, INDEX_INTERVAL));
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            LogEventTransportTest.publish(i, publisher);
+        }
+        publisher.close();
+        return directory;
+    }
+
+    private static void writeEvent(@Nonnull ChunkWriterImpl chunkWriter, long sequence) {
+
+        chunkWriter.sequence(sequence, timestampMillis((int) sequence), Level.INFO, null);
+        chunkWriter.chunk().put(new byte[52]);
+        chunkWriter.last();
+    }
+
+    private static long singleStream(@Nonnull Path directory) throws IOException {
+
+        final var streams = new JournalReader(directory, "test").streams();
+        assertEquals(1, streams.length);
+        return streams[0];
+    }
+
+    @Nonnull
+    private static List<String> replay(@Nonnull Path directory, long streamId) throws IOException {
+
+        final var publisher = new RecordingPublisher();
+        new JournalReader(directory, "test").replay(streamId, new LogEventReceiver(publisher));
+        return texts(publisher.drain());
+    }
+
+    @Nonnull
+    private static List<String> texts(@Nonnull List<RecordingPublisher.Event> events) {
+        return events.stream().map(event -> event.text).collect(Collectors.toList());
+    }
+
+    @Nonnull
+    private static List<String> range(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "message " + i).collect(Collectors.toList());
+    }
+
+    private static long timestampMillis(int i) {
+        return 1_700_000_000_000L + i * 7L;
+    }
+}
@@ -0,0 +1,138 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LevelTreeTest {
+
+    private final LogQueue logQueue = new LogQueue(new RecordingPublisher(), new TestConfig(Map.of()));
+
+    private final LevelTree levelTree = new LevelTree(new TestConfig(Map.of(
+            "level", "WARN",
+            "level.a", "debug",
+            "level.a.b.c", "OFF"
+    )));
+
+    @Test
+    public void configuredLevels() {
+
+        assertEquals(Level.WARN, threshold("other"));
+        assertEquals(Level.WARN, threshold("ROOT"));
+        assertEquals(Level.DEBUG, threshold("a"));
+        assertEquals(Level.DEBUG, threshold("a.b"));
+        assertEquals(Level.DEBUG, threshold("a.bc"));
+        assertEquals(null, threshold("a.b.c"));
+        assertEquals(null, threshold("a.b.c.d"));
+        assertEquals(Level.WARN, threshold("ab"));
+    }
+
+    @Test
+    public void defaultRootLevel() {
+
+        final var logger = new LoggerImpl("a.b", logQueue);
+        new LevelTree(new TestConfig(Map.of())).register(logger);
+        assertEquals(Level.INFO, threshold(logger));
+    }
+
+    @Test
+    public void runtimeLevelsApplyToRegisteredDescendants() {
+
+        final var a = register("a");
+        final var ab = register("a.b");
+        final var abc = register("a.b.c");
+        final var abcd = register("a.b.c.d");
+        final var sibling = register("a.bc");
+        final var other = register("other");
+
+        levelTree.setLevel("a.b", "TRACE");
+        assertEquals(Level.DEBUG, threshold(a));
+        assertEquals(Level.TRACE, threshold(ab));
+        // the configured level of a closer ancestor wins
+        assertEquals(null, threshold(abc));
+        assertEquals(null, threshold(abcd));
+        assertEquals(Level.DEBUG, threshold(sibling));
+        assertEquals(Level.WARN, threshold(other));
+
+        levelTree.setLevel("ROOT", "error");
+        assertEquals(Level.DEBUG, threshold(a));
+        assertEquals(Level.TRACE, threshold(ab));
+        assertEquals(Level.DEBUG, threshold(sibling));
+        assertEquals(Level.ERROR, threshold(other));
+
+        levelTree.setLevel("a", "error");
+        assertEquals(Level.ERROR, threshold(a));
+        assertEquals(Level.TRACE, threshold(ab));
+        assertEquals(Level.ERROR, threshold(sibling));
+
+        levelTree.setLevel("a.b", null);
+        assertEquals(Level.ERROR, threshold(ab));
+        assertEquals(null, threshold(abc));
+        assertEquals(null, threshold(abcd));
+
+        levelTree.setLevel("a.b.c", "INFO");
+        assertEquals(Level.ERROR, threshold(ab));
+        assertEquals(Level.INFO, threshold(abc));
+        assertEquals(Level.INFO, threshold(abcd));
+
+        levelTree.setLevel("a", null);
+        levelTree.setLevel("ROOT", null);
+        assertEquals(Level.DEBUG, threshold(a));
+        assertEquals(Level.DEBUG, threshold(ab));
+        assertEquals(Level.WARN, threshold(other));
+    }
+
+    @Test
+    public void laterLoggersSeeRuntimeLevels() {
+
+        levelTree.setLevel("x", "OFF");
+        assertEquals(null, threshold("x.y"));
+        assertEquals(Level.WARN, threshold("xy"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel() {
+        levelTree.setLevel("a", "VERBOSE");
+    }
+
+    @Nonnull
+    private LoggerImpl register(@Nonnull String name) {
+
+        final var logger = new LoggerImpl(name, logQueue);
+        levelTree.register(logger);
+        return logger;
+    }
+
+    private Level threshold(@Nonnull String name) {
+        return threshold(register(name));
+    }
+
+    /**
+     * @return the lowest enabled level, or <code>null</code> if the logger is off
+     */
+    private static Level threshold(@Nonnull LoggerImpl logger) {
+
+        final var enabled = new boolean[]{
+                logger.isTraceEnabled(),
+                logger.isDebugEnabled(),
+                logger.isInfoEnabled(),
+                logger.isWarnEnabled(),
+                logger.isErrorEnabled()
+        };
+        for (int i = 0; i < enabled.length; i++) {
+            if (enabled[i]) {
+                for (int j = i; j < enabled.length; j++) {
+                    assertTrue(enabled[j]);
+                }
+                return Level.values()[i];
+            }
+        }
+        assertFalse(enabled[enabled.length - 1]);
+        return null;
+    }
+}
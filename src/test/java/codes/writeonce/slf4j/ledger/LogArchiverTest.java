@@ -0,0 +1,160 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogArchiverTest {
+
+    private static final byte[] TEXT = "[2024-05-01T10:15:00.000Z] INFO  main test message\n".repeat(1000)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void gzipRoundTrip() throws IOException {
+
+        for (int level = 0; level <= 9; level++) {
+            final var compressed = compress(new GzipCompressor(level), TEXT);
+            assertArrayEquals(TEXT, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gzipInvalidLevel() {
+        new GzipCompressor(10);
+    }
+
+    @Test
+    public void plainRoundTrip() throws IOException {
+        assertArrayEquals(TEXT, compress(new PlainCompressor(), TEXT));
+    }
+
+    @Test
+    public void archive() throws IOException, InterruptedException {
+
+        final var logPath = writeLog("main.2024-05-01-10.log");
+        final var archPath = temporaryFolder.getRoot().toPath().resolve("archive/main.2024-05-01-10.log.gz");
+
+        new LogArchiver(new GzipCompressor(6), 1).archive(logPath, archPath);
+        awaitDeleted(logPath);
+
+        assertArrayEquals(TEXT, new GZIPInputStream(Files.newInputStream(archPath)).readAllBytes());
+        // the offsets of the index refer to the uncompressed file
+        assertTrue(Files.exists(archPath.resolveSibling("main.2024-05-01-10.log.index")));
+        assertFalse(Files.exists(TimestampIndexWriter.indexPath(logPath)));
+        assertFalse(Files.exists(archPath.resolveSibling("main.2024-05-01-10.log.gz.tmp")));
+    }
+
+    @Test
+    public void archiveKeepsExistingArchive() throws IOException, InterruptedException {
+
+        final var archPath = temporaryFolder.getRoot().toPath().resolve("archive/main.2024-05-01-10.log.gz");
+        Files.createDirectories(archPath.getParent());
+        Files.write(archPath, new byte[] {1, 2, 3});
+
+        final var logPath = writeLog("main.2024-05-01-10.log");
+        new LogArchiver(new GzipCompressor(6), 1).archive(logPath, archPath);
+        awaitDeleted(logPath);
+
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(archPath));
+        final var numberedPath = archPath.resolveSibling("main.2024-05-01-10-1.log.gz");
+        assertArrayEquals(TEXT, new GZIPInputStream(Files.newInputStream(numberedPath)).readAllBytes());
+        assertTrue(Files.exists(archPath.resolveSibling("main.2024-05-01-10-1.log.index")));
+    }
+
+    @Test
+    public void moveKeepsExistingArchive() throws IOException {
+
+        final var archPath = temporaryFolder.getRoot().toPath().resolve("archive/main.2024-05-01-10.log.gz");
+        Files.createDirectories(archPath.getParent());
+        Files.write(archPath, new byte[] {1, 2, 3});
+        Files.write(archPath.resolveSibling("main.2024-05-01-10-1.log.gz"), new byte[] {4, 5, 6});
+
+        final var logPath = writeLog("main.2024-05-01-10.log.gz");
+        new LogArchiver(new GzipCompressor(6), 1).move(logPath, archPath);
+
+        assertFalse(Files.exists(logPath));
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(archPath));
+        assertArrayEquals(new byte[] {4, 5, 6},
+                Files.readAllBytes(archPath.resolveSibling("main.2024-05-01-10-1.log.gz")));
+        final var numberedPath = archPath.resolveSibling("main.2024-05-01-10-2.log.gz");
+        assertArrayEquals(TEXT, Files.readAllBytes(numberedPath));
+        assertTrue(Files.exists(TimestampIndexWriter.indexPath(numberedPath)));
+    }
+
+    @Test
+    public void failedArchiveLeavesLogFile() throws IOException, InterruptedException {
+
+        final var logPath = writeLog("main.2024-05-01-10.log");
+        final var archPath = temporaryFolder.getRoot().toPath().resolve("archive/main.2024-05-01-10.log.gz");
+        final var tmpPath = archPath.resolveSibling("main.2024-05-01-10.log.gz.tmp");
+
+        final var started = new CountDownLatch(1);
+        final var compressor = new Compressor() {
+            @Nonnull
+            @Override
+            public String suffix() {
+                return ".gz";
+            }
+
+            @Nonnull
+            @Override
+            public OutputStream compress(@Nonnull OutputStream outputStream) throws IOException {
+                started.countDown();
+                throw new IOException("compressor failed");
+            }
+        };
+        new LogArchiver(compressor, 1).archive(logPath, archPath);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        awaitDeleted(tmpPath);
+        assertArrayEquals(TEXT, Files.readAllBytes(logPath));
+        assertFalse(Files.exists(archPath));
+    }
+
+    @Nonnull
+    private static byte[] compress(@Nonnull Compressor compressor, @Nonnull byte[] bytes) throws IOException {
+
+        final var outputStream = new ByteArrayOutputStream();
+        try (var compressedStream = compressor.compress(outputStream)) {
+            compressedStream.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Nonnull
+    private Path writeLog(@Nonnull String name) throws IOException {
+
+        final var logPath = temporaryFolder.getRoot().toPath().resolve("current/" + name);
+        Files.createDirectories(logPath.getParent());
+        Files.write(logPath, TEXT);
+        Files.write(TimestampIndexWriter.indexPath(logPath), new byte[TimestampIndexWriter.ENTRY_SIZE]);
+        return logPath;
+    }
+
+    private static void awaitDeleted(@Nonnull Path path) throws InterruptedException {
+
+        for (int i = 0; Files.exists(path); i++) {
+            assertTrue("Not deleted: " + path, i < 1000);
+            Thread.sleep(10);
+        }
+    }
+}
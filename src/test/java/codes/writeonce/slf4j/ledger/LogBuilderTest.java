@@ -0,0 +1,71 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class LogBuilderTest {
+
+    private final RecordingPublisher publisher = new RecordingPublisher();
+
+    private final LoggerImpl logger = new LoggerImpl("test", new LogQueue(publisher, new TestConfig(Map.of())));
+
+    @Test
+    public void primitivesAreFormattedAsBoxed() throws InterruptedException {
+
+        final var format = "long {}, double {}, float {}, boolean {}, char {}, object {}";
+        logger.at(Level.INFO).arg(-42L).arg(1.1).arg(1.1f).arg(true).arg('x').arg("text").log(format);
+        logger.info(format, -42L, 1.1, 1.1f, true, 'x', "text");
+
+        final var text = publisher.takeText();
+        assertEquals("long -42, double 1.1, float 1.1, boolean true, char x, object text", text);
+        assertEquals(text, publisher.takeText());
+    }
+
+    @Test
+    public void placeholdersMatchBoxed() throws InterruptedException {
+
+        final var formats = new String[]{"{}", "{} {}", "no placeholders", "\\{} {}", "\\\\{} {}", "{", "{}{}{}"};
+        for (final var format : formats) {
+            logger.at(Level.WARN).arg(1).arg(2.5f).log(format);
+            logger.warn(format, 1, 2.5f);
+            assertEquals(format, publisher.takeText(), publisher.takeText());
+        }
+    }
+
+    @Test
+    public void trailingThrowableIsAttached() throws InterruptedException {
+
+        final var exception = new IllegalStateException("failed");
+        logger.at(Level.ERROR).arg(7).arg(exception).log("value {}");
+
+        final var event = publisher.take();
+        assertEquals("value 7", event.text);
+        assertNotNull(event.throwable);
+        assertEquals(exception.toString(), event.throwable.toString());
+        assertArrayEquals(exception.getStackTrace(), event.throwable.getStackTrace());
+    }
+
+    @Test
+    public void disabledLevelIsNotPublished() throws InterruptedException {
+
+        logger.at(Level.DEBUG).arg(1).log("debug {}");
+        logger.at(Level.INFO).arg(2).log("info {}");
+
+        final var event = publisher.take();
+        assertEquals("info 2", event.text);
+        assertNull(event.throwable);
+    }
+
+    @Test
+    public void nullFormat() throws InterruptedException {
+
+        logger.at(Level.INFO).arg(1).log(null);
+        assertEquals("null", publisher.takeText());
+    }
+}
@@ -0,0 +1,467 @@
+package codes.writeonce.slf4j.ledger;
+
+import codes.writeonce.slf4j.ledger.transport.LogEventPublisher;
+import codes.writeonce.slf4j.ledger.transport.LogEventReceiver;
+import codes.writeonce.slf4j.ledger.transport.LogEventSerializer;
+import codes.writeonce.slf4j.ledger.transport.deserializer.ReceivedThrowable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongToIntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class LogEventTransportTest {
+
+    private static final int EVENT_COUNT = 2000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        assertRoundTrip(false, LogEventSerializer.DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    @Test
+    public void roundTripMdcDelta() throws IOException {
+        assertRoundTrip(true, LogEventSerializer.DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    @Test
+    public void roundTripWithDictionaryResets() throws IOException {
+        assertRoundTrip(false, 16);
+        assertRoundTrip(true, 16);
+    }
+
+    @Test
+    public void roundTripAfterFailedEvents() throws IOException {
+        assertRoundTripAfterFailedEvents(false, false);
+        assertRoundTripAfterFailedEvents(true, false);
+    }
+
+    @Test
+    public void roundTripAfterFailedAborts() throws IOException {
+        assertRoundTripAfterFailedEvents(false, true);
+        assertRoundTripAfterFailedEvents(true, true);
+    }
+
+    @Test
+    public void roundTripTimestampPrecisions() throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        final var precisions = new TimeUnit[]{TimeUnit.MILLISECONDS, TimeUnit.MICROSECONDS, TimeUnit.NANOSECONDS};
+        final var timestamps = new long[]{1_700_000_000_123L, 1_700_000_000_123_456L, 1_700_000_000_123_456_789L};
+
+        try (var chunkWriter = new ChunkWriterImpl(directory, "test", 16 * 1024 * 1024, 16)) {
+            final var publisher =
+                    new LogEventPublisher(chunkWriter, false, LogEventSerializer.DEFAULT_DICTIONARY_LIMIT);
+            for (int i = 0; i < 100; i++) {
+                publisher.next(0, timestamps[i % 3] + i, precisions[i % 3], Level.INFO, "logger", Map.of(), null, null);
+            }
+            publisher.endOfBatch();
+        }
+
+        final var recordingPublisher = new RecordingPublisher();
+        final var reader = new JournalReader(directory, "test");
+        for (final var streamId : reader.streams()) {
+            reader.replay(streamId, new LogEventReceiver(recordingPublisher));
+        }
+
+        final var events = recordingPublisher.drain();
+        assertEquals(100, events.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(timestamps[i % 3] + i, events.get(i).timestamp);
+            assertEquals(precisions[i % 3], events.get(i).timestampPrecision);
+        }
+    }
+
+    @Test
+    public void roundTripStructuredThrowables() throws IOException {
+
+        final var cycle = new IllegalStateException("cycle");
+        final var cycleCause = new RuntimeException("cycle cause", cycle);
+        cycle.initCause(cycleCause);
+
+        final var suppressing = new Exception("suppressing");
+        final var suppressed = new Exception("suppressed", suppressing);
+        suppressing.addSuppressed(suppressed);
+        suppressing.addSuppressed(new IllegalArgumentException());
+
+        final var frames = new Exception("frames");
+        frames.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("app", "my.module", "1.0", "pkg.Native", "call", null, -2),
+                new StackTraceElement(null, "java.base", null, "java.lang.Thread", "run", "Thread.java", 840),
+                new StackTraceElement("pkg.Unknown", "call", null, -1),
+                new StackTraceElement("pkg.Plain", "call", "Plain.java", 1)
+        });
+
+        final var noFrames = new IllegalStateException("no frames", new RuntimeException());
+        noFrames.setStackTrace(new StackTraceElement[0]);
+
+        final var throwables = new Throwable[]{
+                cycle,
+                suppressing,
+                frames,
+                noFrames,
+                new CustomException("custom"),
+                new CustomException(null),
+                new NullPointerException(),
+                ThrowableSnapshot.of(cycle),
+                cycle
+        };
+
+        final var events = roundTrip(false, 16, publisher -> {
+            for (final var throwable : throwables) {
+                publisher.next(0, 1_700_000_000_000L, TimeUnit.MILLISECONDS, Level.ERROR, "logger", Map.of(), null,
+                        throwable);
+            }
+        });
+
+        assertEquals(throwables.length, events.size());
+        for (int i = 0; i < throwables.length; i++) {
+            final var received = events.get(i).throwable;
+            assertNotNull(received);
+            final var builder = new StringBuilder();
+            new ThrowableRenderer().render(received, builder);
+            assertEquals(ThrowableRendererTest.printStackTrace(throwables[i]), builder.toString());
+        }
+
+        final var receivedCycle = (ReceivedThrowable) events.get(0).throwable;
+        assertEquals(IllegalStateException.class.getName(), receivedCycle.getClassName());
+        assertSame(receivedCycle, receivedCycle.getCause().getCause());
+        final var receivedSuppressing = events.get(1).throwable;
+        assertSame(receivedSuppressing, receivedSuppressing.getSuppressed()[0].getCause());
+    }
+
+    @Test
+    public void roundTripThreadNames() throws IOException {
+
+        final var longName = "long-".repeat(5000);
+        final var threadNames = new String[1000];
+        for (int i = 0; i < threadNames.length; i++) {
+            threadNames[i] = switch (i % 7) {
+                case 0 -> null;
+                case 1 -> "";
+                case 2 -> "\u043f\u043e\u0442\u043e\u043a-" + i % 13;
+                case 3 -> longName;
+                // equal names that are different instances, as after a rename back
+                case 4 -> new String("thread-" + i % 5);
+                default -> "thread-" + i % 300;
+            };
+        }
+
+        for (final var dictionaryLimit : new int[]{LogEventSerializer.DEFAULT_DICTIONARY_LIMIT, 16}) {
+            final var events = roundTrip(false, dictionaryLimit, publisher -> {
+                for (final var threadName : threadNames) {
+                    publisher.next(0, 1_700_000_000_000L, TimeUnit.MILLISECONDS, Level.INFO, "logger", Map.of(),
+                            threadName, null);
+                }
+            });
+
+            assertEquals(threadNames.length, events.size());
+            for (int i = 0; i < threadNames.length; i++) {
+                assertEquals(threadNames[i], events.get(i).threadName);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripMdcChanges() throws IOException {
+
+        final var withNullValue = new HashMap<String, String>();
+        withNullValue.put("a", null);
+        withNullValue.put("d", "4");
+        final var shared = Map.of("a", "1", "b", "2");
+
+        final var mdcs = new ArrayList<Map<String, String>>();
+        mdcs.add(Map.of());
+        mdcs.add(Map.of("a", "1"));
+        mdcs.add(shared);
+        mdcs.add(shared);
+        mdcs.add(Map.of("a", "1", "b", "2"));
+        mdcs.add(Map.of("a", "3", "b", "2"));
+        mdcs.add(Map.of("b", "2"));
+        mdcs.add(null);
+        mdcs.add(Map.of("c", ""));
+        mdcs.add(withNullValue);
+        mdcs.add(Map.of("a", "1", "d", "4"));
+        mdcs.add(Map.of());
+
+        final var threadNames = new String[]{"thread-1", "thread-2", null};
+
+        for (final var dictionaryLimit : new int[]{LogEventSerializer.DEFAULT_DICTIONARY_LIMIT, 16}) {
+            // every thread goes through the changes at its own pace, so that their previous MDCs differ
+            final var events = roundTrip(true, dictionaryLimit, publisher -> {
+                for (int i = 0; i < 300; i++) {
+                    final var thread = i % threadNames.length;
+                    publisher.next(0, 1_700_000_000_000L, TimeUnit.MILLISECONDS, Level.INFO, "logger",
+                            mdcs.get(i / (thread + 1) % mdcs.size()), threadNames[thread], null);
+                }
+            });
+
+            assertEquals(300, events.size());
+            for (int i = 0; i < 300; i++) {
+                final var thread = i % threadNames.length;
+                final var expected = new HashMap<String, String>();
+                final var mdc = mdcs.get(i / (thread + 1) % mdcs.size());
+                if (mdc != null) {
+                    mdc.forEach((key, value) -> {
+                        // a key mapped to null is the same as a removed one
+                        if (value != null) {
+                            expected.put(key, value);
+                        }
+                    });
+                }
+                assertEquals(threadNames[thread], events.get(i).threadName);
+                assertEquals(expected, events.get(i).mdc);
+            }
+        }
+    }
+
+    @Nonnull
+    private List<RecordingPublisher.Event> roundTrip(
+            boolean mdcDelta,
+            int dictionaryLimit,
+            @Nonnull Consumer<Publisher> events
+    ) throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        try (var chunkWriter = new ChunkWriterImpl(directory, "test", 16 * 1024 * 1024, 16)) {
+            final var publisher = new LogEventPublisher(chunkWriter, mdcDelta, dictionaryLimit);
+            events.accept(publisher);
+            publisher.endOfBatch();
+        }
+
+        final var recordingPublisher = new RecordingPublisher();
+        final var reader = new JournalReader(directory, "test");
+        for (final var streamId : reader.streams()) {
+            reader.replay(streamId, new LogEventReceiver(recordingPublisher));
+        }
+        return recordingPublisher.drain();
+    }
+
+    private void assertRoundTrip(boolean mdcDelta, int dictionaryLimit) throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        final var expected = new ByteArrayOutputStream();
+        final var expectedPublisher = new StreamPublisher(Channels.newChannel(expected));
+
+        // a single index point, so that the dictionaries are only ever cleared by the limit
+        try (var chunkWriter = new ChunkWriterImpl(directory, "test", 16 * 1024 * 1024, Integer.MAX_VALUE)) {
+            final var publisher = new LogEventPublisher(chunkWriter, mdcDelta, dictionaryLimit);
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                publish(i, publisher, expectedPublisher);
+            }
+        }
+        expectedPublisher.endOfBatch();
+
+        assertEquals(expected.toString(), replay(directory));
+    }
+
+    /**
+     * @param abortFails whether the chunk writer fails to drop the events and to start index points, in which case
+     *                   the events fail before any of their frames, and only the dictionary resets keep the stream
+     *                   readable
+     */
+    private void assertRoundTripAfterFailedEvents(boolean mdcDelta, boolean abortFails) throws IOException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        final var expected = new ByteArrayOutputStream();
+        final var expectedPublisher = new StreamPublisher(Channels.newChannel(expected));
+
+        // small segments, so that the events with throwables take several chunks, and no index points but the forced
+        // ones, so that the dictionaries are never cleared otherwise
+        final var chunkWriterImpl = new ChunkWriterImpl(directory, "test", 1024, Integer.MAX_VALUE);
+        // the events fail once their logger names and more have been written into the dictionaries, the publisher
+        // numbers the events from 1
+        final LongToIntFunction failingChunk = sequence -> switch ((int) (sequence - 1) % 30) {
+            case 10 -> abortFails ? 1 : 2;
+            case 20 -> abortFails ? 1 : 3;
+            default -> 0;
+        };
+        try (var chunkWriter = new FailingChunkWriter(chunkWriterImpl, failingChunk, abortFails)) {
+            final var publisher = new LogEventPublisher(chunkWriter, mdcDelta);
+            for (int i = 0; i < 600; i++) {
+                try {
+                    // the expected publisher gets only the events that have not failed
+                    publish(i, publisher, expectedPublisher);
+                } catch (UncheckedIOException e) {
+                    // the event is dropped
+                }
+            }
+            assertEquals(40, chunkWriter.failures);
+        }
+        expectedPublisher.endOfBatch();
+
+        assertEquals(expected.toString(), replay(directory));
+    }
+
+    @Nonnull
+    private static String replay(@Nonnull Path directory) throws IOException {
+
+        final var actual = new ByteArrayOutputStream();
+        final var actualPublisher = new StreamPublisher(Channels.newChannel(actual));
+        final var reader = new JournalReader(directory, "test");
+        for (final var streamId : reader.streams()) {
+            reader.replay(streamId, new LogEventReceiver(actualPublisher));
+        }
+        actualPublisher.endOfBatch();
+        return actual.toString();
+    }
+
+    /**
+     * Publishes the same event, whose logger, thread name, MDC and throwable repeat at different periods, to all the
+     * publishers.
+     */
+    static void publish(int i, @Nonnull Publisher... publishers) {
+
+        final var text = "message " + i;
+        final Map<String, String> mdc =
+                i % 3 == 0 ? Map.of() : Map.of("user", "user-" + i % 11, "request", "r" + i / 5);
+        final var throwable = i % 10 != 0 ? null
+                : i % 20 == 0 ? ThrowableSnapshot.of(createThrowable(i % 7)) : createThrowable(i % 7);
+        for (final var publisher : publishers) {
+            publisher.next(text.length(), 1_700_000_000_000L + i * 7L, TimeUnit.MILLISECONDS, Level.values()[i % 5],
+                    "logger." + i % 37, mdc, i % 4 == 0 ? null : "thread-" + i % 23, throwable);
+            publisher.chunk(true, CharBuffer.wrap(text));
+            if (i % 10 == 9) {
+                publisher.endOfBatch();
+            }
+        }
+    }
+
+    private static final class CustomException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        CustomException(String message) {
+            super(message);
+        }
+
+        @Override
+        public String getLocalizedMessage() {
+            return "localized " + getMessage();
+        }
+
+        @Override
+        public String toString() {
+            return "custom: " + getLocalizedMessage();
+        }
+    }
+
+    static final class FailingChunkWriter implements ChunkWriter, AutoCloseable {
+
+        @Nonnull
+        private final ChunkWriterImpl chunkWriter;
+
+        /**
+         * Gives the number of the call of {@link #chunk()} that fails within the event of a sequence, or
+         * <code>0</code> for none.
+         */
+        @Nonnull
+        private final LongToIntFunction failingChunk;
+
+        private final boolean abortFails;
+
+        int failures;
+
+        private int eventFailingChunk;
+
+        private int chunks;
+
+        FailingChunkWriter(
+                @Nonnull ChunkWriterImpl chunkWriter,
+                @Nonnull LongToIntFunction failingChunk,
+                boolean abortFails
+        ) {
+            this.chunkWriter = chunkWriter;
+            this.failingChunk = failingChunk;
+            this.abortFails = abortFails;
+        }
+
+        @Override
+        public void chunk(boolean last, boolean endOfBatch, int start, int end, @Nonnull byte[] bytes) {
+            chunkWriter.chunk(last, endOfBatch, start, end, bytes);
+        }
+
+        @Override
+        public boolean sequence(
+                long sequence,
+                long timestampMillis,
+                @Nonnull Level level,
+                @Nullable Map<String, String> mdc
+        ) {
+
+            chunks = 0;
+            eventFailingChunk = failingChunk.applyAsInt(sequence);
+            return chunkWriter.sequence(sequence, timestampMillis, level, mdc);
+        }
+
+        @Override
+        public void last() {
+            chunkWriter.last();
+        }
+
+        @Override
+        public void endOfBatch() {
+            chunkWriter.endOfBatch();
+        }
+
+        @Nonnull
+        @Override
+        public ByteBuffer chunk() {
+
+            if (++chunks == eventFailingChunk) {
+                failures++;
+                throw new UncheckedIOException(new IOException("No space left on device"));
+            }
+            return chunkWriter.chunk();
+        }
+
+        @Override
+        public void abort() {
+
+            if (abortFails) {
+                throw new UncheckedIOException(new IOException("No space left on device"));
+            }
+            chunkWriter.abort();
+        }
+
+        @Override
+        public void close() {
+            chunkWriter.close();
+        }
+    }
+
+    @Nonnull
+    private static Throwable createThrowable(int depth) {
+
+        if (depth == 0) {
+            return new IllegalStateException("depth 0", new RuntimeException("cause"));
+        }
+        final var throwable = createThrowable(depth - 1);
+        if (depth % 3 == 0) {
+            throwable.addSuppressed(new IllegalArgumentException("suppressed " + depth));
+        }
+        return throwable;
+    }
+}
@@ -1,17 +1,36 @@
 package codes.writeonce.slf4j.ledger;
 
+import codes.writeonce.slf4j.ledger.transport.LogEventPublisher;
+import codes.writeonce.slf4j.ledger.transport.LogEventReceiver;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class LogQueueTest {
 
-    private static final LogQueue logQueue = new LogQueue(new StreamPublisher(System.err));
+    private static final LogQueue logQueue = new LogQueue(
+            new StreamPublisher(new FileOutputStream(FileDescriptor.err).getChannel()));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Test
     public void main() throws InterruptedException {
@@ -25,6 +44,130 @@ public class LogQueueTest {
         log(Instant.parse("2021-07-29T01:02:03.001Z"), mdc, Level.WARN, null, "", null);
     }
 
+    @Test(timeout = 30000)
+    public void survivesFailingPublisher() throws InterruptedException {
+
+        final var count = 1000;
+        final var publisher = new FailingPublisher(count);
+        // queues small enough to fill up and wrap around while the publisher keeps failing
+        final var queue = new LogQueue(publisher, new TestConfig(Map.of("entryQueueSize", "4", "textQueueSize", "16")));
+
+        final var expected = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            final var text = "message " + i;
+            queue.publish(i, Level.INFO, "test", null, null, null, new StringBuilder(text));
+            if (i % 100 != 1 && i % 100 != 2) {
+                expected.add(text);
+            }
+        }
+
+        assertTrue(publisher.done.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, publisher.texts);
+    }
+
+    @Test(timeout = 30000)
+    public void logEventPublisherRecoversFromFailures() throws IOException, InterruptedException {
+
+        final var directory = temporaryFolder.newFolder().toPath();
+        // the texts span segments, so that every tenth event fails in the middle of its text, the publisher numbers
+        // the events from 1
+        final var chunkWriter = new LogEventTransportTest.FailingChunkWriter(
+                new ChunkWriterImpl(directory, "test", 4096, 16), sequence -> sequence % 10 == 0 ? 2 : 0, false);
+        final var queue = new LogQueue(new LogEventPublisher(chunkWriter), new TestConfig(Map.of()));
+
+        final var expected = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            final var text = "message " + i + " " + "x".repeat(5000);
+            queue.publish(i, Level.INFO, "logger." + i % 7, null, null, null, new StringBuilder(text));
+            if (i % 10 != 9) {
+                expected.add(text);
+            }
+        }
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+        assertEquals(10, chunkWriter.failures);
+
+        final var publisher = new RecordingPublisher();
+        final var reader = new JournalReader(directory, "test");
+        for (final var streamId : reader.streams()) {
+            reader.replay(streamId, new LogEventReceiver(publisher));
+        }
+        assertEquals(expected, publisher.drain().stream().map(event -> event.text).collect(Collectors.toList()));
+    }
+
+    @Test(timeout = 30000)
+    public void closePublishesQueuedEventsAndClosesPublisher() throws InterruptedException {
+
+        final var publisher = new RecordingPublisher();
+        final var queue = new LogQueue(publisher, new TestConfig(Map.of("entryQueueSize", "4", "textQueueSize", "16")));
+
+        for (int i = 0; i < 100; i++) {
+            queue.publish(i, Level.INFO, "test", null, null, null, new StringBuilder("message " + i));
+        }
+
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+        assertTrue(publisher.closed);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("message " + i, publisher.takeText());
+        }
+
+        // the events logged afterwards are dropped without blocking the producers
+        for (int i = 0; i < 100; i++) {
+            queue.publish(i, Level.INFO, "test", null, null, null, new StringBuilder("dropped " + i));
+        }
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void clockSources() throws InterruptedException {
+
+        assertClockSource("system", TimeUnit.MILLISECONDS);
+        assertClockSource("cached", TimeUnit.MILLISECONDS);
+        assertClockSource("micros", TimeUnit.MICROSECONDS);
+        assertClockSource("nanos", TimeUnit.NANOSECONDS);
+    }
+
+    @Test(timeout = 30000)
+    public void closeStopsCachedClock() throws InterruptedException {
+
+        final var queue = new LogQueue(new RecordingPublisher(),
+                new TestConfig(Map.of("clock", "cached", "clockTickMillis", "1")));
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+
+        // a tick may still be under way
+        Thread.sleep(100);
+        final var timestamp = queue.timestamp();
+        Thread.sleep(100);
+        assertEquals(timestamp, queue.timestamp());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidClockSource() {
+        new LogQueue(new RecordingPublisher(), new TestConfig(Map.of("clock", "sundial")));
+    }
+
+    private static void assertClockSource(@Nonnull String clock, @Nonnull TimeUnit precision)
+            throws InterruptedException {
+
+        final var publisher = new RecordingPublisher();
+        final var queue = new LogQueue(publisher, new TestConfig(Map.of("clock", clock, "clockTickMillis", "1")));
+
+        final var before = Instant.now();
+        queue.publish(queue.timestamp(), Level.INFO, "test", null, null, null, new StringBuilder(clock));
+        final var after = Instant.now();
+
+        final var event = publisher.take();
+        assertEquals(clock, event.text);
+        assertEquals(precision, event.timestampPrecision);
+        final var nanos = precision.toNanos(event.timestamp);
+        // the cached clock lags behind by up to a tick, which a busy machine may stretch
+        assertTrue(clock, nanos >= toNanos(before.minusSeconds(1)) && nanos <= toNanos(after));
+        assertTrue(queue.close(10, TimeUnit.SECONDS));
+    }
+
+    private static long toNanos(@Nonnull Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
     private static void log(
             @Nonnull Instant timestamp,
             @Nullable LinkedHashMap<String, String> mdc,
@@ -33,19 +176,68 @@ public class LogQueueTest {
             @Nonnull String msg,
             @Nullable Throwable throwable
     ) {
-        logQueue.publish(timestamp.toEpochMilli(), level, mdc, threadName, getThrowableString(throwable),
+        logQueue.publish(timestamp.toEpochMilli(), level, "test", mdc, threadName, throwable,
                 new StringBuilder().append(msg));
     }
 
-    private static String getThrowableString(@Nullable Throwable throwable) {
-        if (throwable == null) {
-            return null;
+    /**
+     * Fails on the events with timestamps ending in 01 and 02 and on every tenth end of batch.
+     */
+    private static final class FailingPublisher implements Publisher {
+
+        final List<String> texts = new ArrayList<>();
+
+        final CountDownLatch done;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private long timestamp;
+
+        private int batchCount;
+
+        FailingPublisher(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void next(
+                int textSize,
+                long timestamp,
+                @Nonnull TimeUnit timestampPrecision,
+                @Nonnull Level level,
+                @Nonnull String loggerName,
+                @Nullable Map<String, String> mdc,
+                @Nullable String threadName,
+                @Nullable Throwable throwable
+        ) {
+            this.timestamp = timestamp;
+            text.setLength(0);
+            if (timestamp % 100 == 1) {
+                done.countDown();
+                throw new IllegalStateException("next " + timestamp);
+            }
+        }
+
+        @Override
+        public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
+
+            if (timestamp % 100 == 2) {
+                done.countDown();
+                throw new IllegalStateException("chunk " + timestamp);
+            }
+            text.append(charBuffer);
+            if (last) {
+                texts.add(text.toString());
+                done.countDown();
+            }
+        }
+
+        @Override
+        public void endOfBatch() {
+
+            if (++batchCount % 10 == 0) {
+                throw new IllegalStateException("endOfBatch " + batchCount);
+            }
         }
-        final var stringWriter = new StringWriter();
-        final var printWriter = new PrintWriter(stringWriter);
-        throwable.printStackTrace(printWriter);
-        printWriter.flush();
-        stringWriter.flush();
-        return stringWriter.toString();
     }
 }
@@ -0,0 +1,81 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MdcMapTest {
+
+    @Test
+    public void matchesTreeMap() {
+
+        final var random = new Random(1);
+        final var expected = new TreeMap<String, String>();
+        var map = MdcMap.EMPTY;
+        for (int i = 0; i < 10000; i++) {
+            final var key = "key" + random.nextInt(20);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                final var value = random.nextInt(10) == 0 ? null : "value" + i;
+                expected.put(key, value);
+                map = map.with(key, value);
+            }
+            assertEquals(expected, map);
+            assertEquals(expected.toString(), map.toString());
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void updatesLeaveOriginalUntouched() {
+
+        final var map = MdcMap.of(Map.of("a", "1", "b", "2"));
+        final var updated = map.with("a", "3").with("c", "4").without("b");
+
+        assertEquals(Map.of("a", "1", "b", "2"), map);
+        assertEquals(Map.of("a", "3", "c", "4"), updated);
+    }
+
+    @Test
+    public void unchangedMapIsReused() {
+
+        final var map = MdcMap.of(Map.of("a", "1"));
+
+        assertSame(map, map.with("a", "1"));
+        assertSame(map, map.without("b"));
+        assertSame(MdcMap.EMPTY, map.without("a"));
+    }
+
+    @Test
+    public void otherKeys() {
+
+        final var map = MdcMap.of(Map.of("a", "1"));
+
+        assertFalse(map.containsKey(null));
+        assertFalse(map.containsKey(1));
+        assertNull(map.get(null));
+        assertNull(map.get(1));
+        assertTrue(MdcMap.EMPTY.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullKeyIsRejected() {
+
+        final var map = new HashMap<String, String>();
+        map.put("a", "1");
+        map.put(null, "2");
+        MdcMap.of(map);
+    }
+}
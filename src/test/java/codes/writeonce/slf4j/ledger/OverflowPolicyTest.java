@@ -0,0 +1,82 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OverflowPolicyTest {
+
+    private static final int SIZE = 4;
+
+    @Test(timeout = 30000)
+    public void dropping() {
+
+        final var blocked = fill();
+        assertEquals(-1, new DroppingOverflowPolicy().claim(blocked.sequencer, Level.ERROR));
+        blocked.release();
+    }
+
+    @Test(timeout = 30000)
+    public void timeout() {
+
+        final var blocked = fill();
+        final var start = System.nanoTime();
+        assertEquals(-1, new TimeoutOverflowPolicy(20, TimeUnit.MILLISECONDS).claim(blocked.sequencer, Level.ERROR));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        blocked.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeout() {
+        new TimeoutOverflowPolicy(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(timeout = 30000)
+    public void blocking() throws InterruptedException, ExecutionException, TimeoutException {
+        assertBlocks(new BlockingOverflowPolicy(), Level.TRACE);
+    }
+
+    @Test(timeout = 30000)
+    public void level() throws InterruptedException, ExecutionException, TimeoutException {
+
+        final var policy = new LevelOverflowPolicy(Level.WARN);
+
+        final var blocked = fill();
+        assertEquals(-1, policy.claim(blocked.sequencer, Level.INFO));
+        blocked.release();
+
+        assertBlocks(policy, Level.WARN);
+        assertBlocks(policy, Level.ERROR);
+    }
+
+    private static void assertBlocks(@Nonnull OverflowPolicy policy, @Nonnull Level level)
+            throws InterruptedException, ExecutionException, TimeoutException {
+
+        final var blocked = fill();
+        final var claim = CompletableFuture.supplyAsync(() -> policy.claim(blocked.sequencer, level));
+
+        Thread.sleep(50);
+        assertFalse(claim.isDone());
+
+        blocked.release();
+        assertEquals(Long.valueOf(SIZE), claim.get(10, TimeUnit.SECONDS));
+    }
+
+    @Nonnull
+    private static SequencerTest.BlockedConsumer fill() {
+
+        final var blocked = new SequencerTest.BlockedConsumer(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            blocked.sequencer.publish(blocked.sequencer.next());
+        }
+        return blocked;
+    }
+}
@@ -0,0 +1,132 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Collects the events published on the consumer thread for the test thread to take.
+ */
+final class RecordingPublisher implements Publisher {
+
+    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+    private final StringBuilder text = new StringBuilder();
+
+    private Event event;
+
+    volatile boolean closed;
+
+    @Override
+    public void next(
+            int textSize,
+            long timestamp,
+            @Nonnull TimeUnit timestampPrecision,
+            @Nonnull Level level,
+            @Nonnull String loggerName,
+            @Nullable Map<String, String> mdc,
+            @Nullable String threadName,
+            @Nullable Throwable throwable
+    ) {
+        event = new Event(timestamp, timestampPrecision, level, loggerName, mdc, threadName, throwable);
+        text.setLength(0);
+        if (textSize == 0) {
+            event.text = "";
+            events.add(event);
+        }
+    }
+
+    @Override
+    public void chunk(boolean last, @Nonnull CharBuffer charBuffer) {
+
+        text.append(charBuffer);
+        if (last) {
+            event.text = text.toString();
+            events.add(event);
+        }
+    }
+
+    @Override
+    public void endOfBatch() {
+        // empty
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Nonnull
+    Event take() throws InterruptedException {
+
+        final var event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No event published", event);
+        return event;
+    }
+
+    @Nonnull
+    String takeText() throws InterruptedException {
+        return take().text;
+    }
+
+    /**
+     * @return the events published so far
+     */
+    @Nonnull
+    List<Event> drain() {
+
+        final var list = new ArrayList<Event>();
+        events.drainTo(list);
+        return list;
+    }
+
+    static final class Event {
+
+        final long timestamp;
+
+        @Nonnull
+        final TimeUnit timestampPrecision;
+
+        @Nonnull
+        final Level level;
+
+        @Nonnull
+        final String loggerName;
+
+        @Nullable
+        final Map<String, String> mdc;
+
+        @Nullable
+        final String threadName;
+
+        @Nullable
+        final Throwable throwable;
+
+        String text;
+
+        Event(
+                long timestamp,
+                @Nonnull TimeUnit timestampPrecision,
+                @Nonnull Level level,
+                @Nonnull String loggerName,
+                @Nullable Map<String, String> mdc,
+                @Nullable String threadName,
+                @Nullable Throwable throwable
+        ) {
+            this.timestamp = timestamp;
+            this.timestampPrecision = timestampPrecision;
+            this.level = level;
+            this.loggerName = loggerName;
+            this.mdc = mdc;
+            this.threadName = threadName;
+            this.throwable = throwable;
+        }
+    }
+}
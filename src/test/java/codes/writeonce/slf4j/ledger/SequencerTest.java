@@ -0,0 +1,196 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SequencerTest {
+
+    private static final int SIZE = 16;
+
+    @Test(timeout = 30000)
+    public void producersAreConsumedInOrder() throws InterruptedException {
+
+        final var producerCount = 4;
+        final var eventCount = 20000;
+        final var payloads = new long[SIZE];
+        final var lastEvents = new long[producerCount];
+        final var consumed = new AtomicLong();
+        final var failures = new AtomicInteger();
+        final var done = new CountDownLatch(1);
+
+        final var sequencer = new Sequencer[1];
+        sequencer[0] = new Sequencer(SIZE, waitStrategy(SIZE), 100, TimeUnit.MILLISECONDS,
+                new PrefixThreadFactory("test-consumer-", true), () -> {
+            while (true) {
+                final var sequence = sequencer[0].waitFor();
+                if (sequence == -1) {
+                    break;
+                }
+                if (sequence != consumed.get()) {
+                    failures.incrementAndGet();
+                }
+                // every producer publishes its events in order
+                final var payload = payloads[(int) sequence & (SIZE - 1)];
+                final var producer = (int) (payload / eventCount);
+                if (payload % eventCount != lastEvents[producer]++) {
+                    failures.incrementAndGet();
+                }
+                sequencer[0].release(sequence);
+                if (consumed.incrementAndGet() == (long) producerCount * eventCount) {
+                    done.countDown();
+                }
+            }
+        }, () -> false);
+
+        final var producers = new ArrayList<Thread>();
+        for (int p = 0; p < producerCount; p++) {
+            final var producer = p;
+            final var thread = new Thread(() -> {
+                for (int i = 0; i < eventCount; i++) {
+                    final var sequence = sequencer[0].next();
+                    payloads[(int) sequence & (SIZE - 1)] = (long) producer * eventCount + i;
+                    sequencer[0].publish(sequence);
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        for (final var thread : producers) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+    }
+
+    @Test(timeout = 30000)
+    public void consumerIsRestartedAfterIdling() throws InterruptedException {
+
+        final var threads = new AtomicInteger();
+        final var consumed = new LinkedBlockingQueue<Long>();
+        final var sequencer = new Sequencer[1];
+        sequencer[0] = new Sequencer(SIZE, waitStrategy(SIZE), 50, TimeUnit.MILLISECONDS, target -> {
+            threads.incrementAndGet();
+            final var thread = new Thread(target);
+            thread.setDaemon(true);
+            return thread;
+        }, () -> {
+            while (true) {
+                final var sequence = sequencer[0].waitFor();
+                if (sequence == -1) {
+                    break;
+                }
+                sequencer[0].release(sequence);
+                consumed.add(sequence);
+            }
+        }, () -> false);
+
+        for (long i = 0; i < 3; i++) {
+            sequencer[0].publish(sequencer[0].next());
+            assertEquals(Long.valueOf(i), consumed.poll(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+        }
+
+        assertEquals(3, threads.get());
+    }
+
+    @Test(timeout = 30000)
+    public void idleTaskKeepsConsumerAlive() throws InterruptedException {
+
+        final var idleCalls = new AtomicInteger();
+        final var exited = new CountDownLatch(1);
+        final var sequencer = new Sequencer[1];
+        sequencer[0] = new Sequencer(SIZE, waitStrategy(SIZE), 20, TimeUnit.MILLISECONDS,
+                new PrefixThreadFactory("test-consumer-", true), () -> {
+            while (true) {
+                final var sequence = sequencer[0].waitFor();
+                if (sequence == -1) {
+                    break;
+                }
+                sequencer[0].release(sequence);
+            }
+            exited.countDown();
+        }, () -> idleCalls.incrementAndGet() < 5);
+
+        sequencer[0].publish(sequencer[0].next());
+
+        assertTrue(exited.await(10, TimeUnit.SECONDS));
+        assertEquals(5, idleCalls.get());
+    }
+
+    @Test(timeout = 30000)
+    public void tryNextOnFullRing() throws InterruptedException {
+
+        final var blocked = new BlockedConsumer(4);
+        final var sequencer = blocked.sequencer;
+        for (int i = 0; i < 4; i++) {
+            final var sequence = sequencer.tryNext();
+            assertEquals(i, sequence);
+            sequencer.publish(sequence);
+        }
+
+        assertEquals(-1, sequencer.tryNext());
+        final var start = System.nanoTime();
+        assertEquals(-1, sequencer.tryNext(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        blocked.release();
+        final var sequence = sequencer.tryNext(10, TimeUnit.SECONDS);
+        assertNotEquals(-1, sequence);
+        assertEquals(4, sequence);
+    }
+
+    @Nonnull
+    private static WaitStrategy waitStrategy(int size) {
+        return new BackoffWaitStrategy(size, 100, 100, 100_000);
+    }
+
+    /**
+     * Sequencer whose consumer takes the first sequence and waits to be released before it goes on, so that the ring
+     * fills up.
+     */
+    static final class BlockedConsumer {
+
+        @Nonnull
+        final Sequencer sequencer;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        BlockedConsumer(int size) {
+            sequencer = new Sequencer(size, waitStrategy(size), 10, TimeUnit.SECONDS,
+                    new PrefixThreadFactory("test-consumer-", true), this::consume, () -> false);
+        }
+
+        void release() {
+            latch.countDown();
+        }
+
+        private void consume() {
+
+            while (true) {
+                final var sequence = sequencer.waitFor();
+                if (sequence == -1) {
+                    break;
+                }
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                sequencer.release(sequence);
+            }
+        }
+    }
+}
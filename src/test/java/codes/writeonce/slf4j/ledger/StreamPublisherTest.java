@@ -0,0 +1,90 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+
+public class StreamPublisherTest {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(UTF_8);
+
+    @Test
+    public void multiByteCharacters() {
+
+        assertEncoded("ascii");
+        assertEncoded("2 bytes: \u00e9\u00df\u07ff");
+        assertEncoded("3 bytes: \u0800\u20ac\uffff");
+        assertEncoded("4 bytes: \ud83d\ude00\udbff\udfff");
+        assertEncoded("\u00e9", "\u20ac", "\ud83d\ude00", "");
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossChunks() {
+
+        assertEncoded("a\ud83d", "\ude00b");
+        assertEncoded("\ud83d", "\ude00");
+        assertEncoded("\ud83d", "", "\ude00");
+    }
+
+    @Test
+    public void loneSurrogatesAreReplaced() {
+
+        assertEncoded("high at the end \ud83d");
+        assertEncoded("high before ascii \ud83dx");
+        assertEncoded("high before 2 bytes \ud83d\u00e9");
+        assertEncoded("two highs \ud83d\ud83d\ude00");
+        assertEncoded("low \ude00x");
+        assertEncoded("low after pair \ud83d\ude00\ude00");
+        assertEncoded("high at the end of a chunk \ud83d", "x");
+        assertEncoded("high at the end of the last chunk", "\ud83d");
+    }
+
+    @Test
+    public void textLargerThanBuffer() {
+
+        final var chunks = new String[100];
+        Arrays.fill(chunks, "\u20ac\ud83d\ude00x".repeat(300) + "\ud83d");
+        chunks[chunks.length - 1] = "\ude00";
+        assertEncoded(chunks);
+    }
+
+    /**
+     * Checks the text of an event against {@link String#getBytes}, which replaces lone surrogates with
+     * <code>?</code> as well.
+     */
+    private static void assertEncoded(@Nonnull String... chunks) {
+
+        final var text = String.join("", chunks);
+        final var marker = publish("#");
+        final var prefixLength = marker.length - 1 - LINE_SEPARATOR.length;
+        final var textBytes = text.getBytes(UTF_8);
+
+        final var expected = Arrays.copyOf(marker, prefixLength + textBytes.length + LINE_SEPARATOR.length);
+        System.arraycopy(textBytes, 0, expected, prefixLength, textBytes.length);
+        System.arraycopy(LINE_SEPARATOR, 0, expected, prefixLength + textBytes.length, LINE_SEPARATOR.length);
+
+        assertArrayEquals(text, expected, publish(chunks));
+    }
+
+    @Nonnull
+    private static byte[] publish(@Nonnull String... chunks) {
+
+        final var output = new ByteArrayOutputStream();
+        final var publisher = new StreamPublisher(Channels.newChannel(output));
+        final var textSize = String.join("", chunks).length();
+        publisher.next(textSize, 1_700_000_000_000L, TimeUnit.MILLISECONDS, Level.INFO, "logger", null, "thread", null);
+        for (int i = 0; i < chunks.length; i++) {
+            publisher.chunk(i == chunks.length - 1, CharBuffer.wrap(chunks[i]));
+        }
+        publisher.endOfBatch();
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,24 @@
+package codes.writeonce.slf4j.ledger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Config with the given properties only.
+ */
+final class TestConfig extends Config {
+
+    @Nonnull
+    private final Map<String, String> properties;
+
+    TestConfig(@Nonnull Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    @Nullable
+    @Override
+    public String getProperty(@Nonnull String name) {
+        return properties.get(name);
+    }
+}
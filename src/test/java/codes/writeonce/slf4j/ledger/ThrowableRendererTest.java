@@ -0,0 +1,84 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThrowableRendererTest {
+
+    @Test
+    public void matchesPrintStackTrace() {
+
+        final var renderer = new ThrowableRenderer();
+
+        for (int i = 0; i < 3; i++) {
+            final var cause = new IllegalStateException("cause " + i);
+            final var throwable = new RuntimeException("failed " + i, cause);
+            throwable.addSuppressed(new IllegalArgumentException("suppressed"));
+            cause.initCause(throwable);
+
+            final var builder = new StringBuilder();
+            renderer.render(throwable, builder);
+            assertEquals(printStackTrace(throwable), builder.toString());
+        }
+    }
+
+    @Test
+    public void snapshotMatchesPrintStackTrace() {
+
+        final var cause = new IllegalStateException("cause");
+        final var throwable = new RuntimeException("failed", cause);
+        throwable.addSuppressed(new IllegalArgumentException("suppressed"));
+        cause.initCause(throwable);
+
+        final var builder = new StringBuilder();
+        new ThrowableRenderer().render(ThrowableSnapshot.of(throwable), builder);
+        assertEquals(printStackTrace(throwable), builder.toString());
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterChanges() {
+
+        final var message = new StringBuilder("before");
+        final var throwable = new RuntimeException() {
+            @Override
+            public String getMessage() {
+                return message.toString();
+            }
+        };
+        final var expected = printStackTrace(throwable);
+
+        final var snapshot = ThrowableSnapshot.of(throwable);
+        message.replace(0, message.length(), "after");
+        throwable.addSuppressed(new IllegalArgumentException("suppressed"));
+        throwable.initCause(new IllegalStateException("cause"));
+
+        final var builder = new StringBuilder();
+        new ThrowableRenderer().render(snapshot, builder);
+        assertEquals(expected, builder.toString());
+    }
+
+    @Test
+    public void snapshotOfFailingToString() {
+
+        final var throwable = new RuntimeException() {
+            @Override
+            public String toString() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertEquals(throwable.getClass().getName(), ThrowableSnapshot.of(throwable).toString());
+    }
+
+    static String printStackTrace(Throwable throwable) {
+        final var stringWriter = new StringWriter();
+        final var printWriter = new PrintWriter(stringWriter);
+        throwable.printStackTrace(printWriter);
+        printWriter.flush();
+        return stringWriter.toString();
+    }
+}
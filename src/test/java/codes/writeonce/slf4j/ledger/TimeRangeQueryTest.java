@@ -0,0 +1,143 @@
+package codes.writeonce.slf4j.ledger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeRangeQueryTest {
+
+    private static final int EVENT_COUNT = 1000;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final long BASE_MILLIS = 1_700_000_000_000L;
+
+    private static final StackTraceElement[] STACK_TRACE = {
+            new StackTraceElement("codes.writeonce.Test", "first", "Test.java", 10),
+            new StackTraceElement("codes.writeonce.Test", "second", "Test.java", 20),
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void query() throws IOException {
+
+        final var logPath = temporaryFolder.getRoot().toPath().resolve("test.log");
+        write(logPath, 0, EVENT_COUNT, true);
+
+        assertTrue(Files.size(TimestampIndexWriter.indexPath(logPath)) > 10 * TimestampIndexWriter.ENTRY_SIZE);
+        assertQueries(logPath);
+    }
+
+    @Test
+    public void queryWithoutIndex() throws IOException {
+
+        final var logPath = temporaryFolder.getRoot().toPath().resolve("test.log");
+        write(logPath, 0, EVENT_COUNT, true);
+        Files.delete(TimestampIndexWriter.indexPath(logPath));
+
+        assertQueries(logPath);
+    }
+
+    @Test
+    public void queryAfterCrash() throws IOException {
+
+        final var logPath = temporaryFolder.getRoot().toPath().resolve("test.log");
+        // the index is not closed, so the events of the last block are not indexed when the file is reopened
+        write(logPath, 0, EVENT_COUNT / 2, false);
+        write(logPath, EVENT_COUNT / 2, EVENT_COUNT, true);
+
+        assertQueries(logPath);
+    }
+
+    private static void assertQueries(@Nonnull Path logPath) throws IOException {
+
+        final var events = new String[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            final var event = new ByteArrayOutputStream();
+            final var publisher = new StreamPublisher(Channels.newChannel(event));
+            publish(i, publisher);
+            publisher.endOfBatch();
+            events[i] = event.toString();
+        }
+
+        for (int from = -10; from < EVENT_COUNT + 10; from++) {
+            for (final var length : new int[] {0, 1, 5, 60, 400, 2 * EVENT_COUNT}) {
+                final var fromMillis = timestampMillis(from);
+                final var toMillis = timestampMillis(from + length);
+
+                final var expected = new StringBuilder();
+                for (int i = 0; i < EVENT_COUNT; i++) {
+                    final var timestampMillis = timestampMillis(i);
+                    if (timestampMillis >= fromMillis && timestampMillis < toMillis) {
+                        expected.append(events[i]);
+                    }
+                }
+
+                final var actual = new ByteArrayOutputStream();
+                TimeRangeQuery.query(logPath, fromMillis, toMillis, actual);
+                assertEquals("[" + from + ", " + (from + length) + ")", expected.toString(), actual.toString());
+            }
+        }
+    }
+
+    private static void write(@Nonnull Path logPath, int from, int to, boolean close) throws IOException {
+
+        final var logSize = Files.exists(logPath) ? Files.size(logPath) : 0;
+        final var index = new TimestampIndexWriter(logPath, BLOCK_SIZE, logSize);
+        try (var channel = FileChannel.open(logPath, CREATE, WRITE, APPEND)) {
+            final var publisher = new StreamPublisher(channel, logSize);
+            for (int i = from; i < to; i++) {
+                index.next(publisher.position(), timestampMillis(i));
+                publish(i, publisher);
+                if (i % 10 == 9) {
+                    publisher.endOfBatch();
+                }
+            }
+            publisher.endOfBatch();
+            if (close) {
+                index.close(publisher.position());
+            }
+        }
+    }
+
+    private static void publish(int i, @Nonnull StreamPublisher publisher) {
+
+        final var text = "message " + i;
+        // multi-line events make continuation lines to be passed along with their event
+        final Throwable throwable;
+        if (i % 17 == 0) {
+            throwable = new IllegalStateException("failed " + i);
+            throwable.setStackTrace(STACK_TRACE);
+        } else {
+            throwable = null;
+        }
+        publisher.next(text.length(), timestampMillis(i), TimeUnit.MILLISECONDS, Level.INFO, "test", null, null,
+                throwable);
+        publisher.chunk(true, CharBuffer.wrap(text));
+    }
+
+    /**
+     * Timestamps go back a little every now and then, as they do with events of several threads.
+     */
+    private static long timestampMillis(int i) {
+        return BASE_MILLIS + i * 10L - (i % 4) * 13L;
+    }
+}